@@ -1,11 +1,30 @@
 // This algorithm processes a list of tweets to find the top N most frequent hashtags from tweets that were posted in February 2024.
 // The main idea is to filter the tweets by date, extract hashtags, count their occurrences, sort them by frequency (and lexicographically in case of ties),
 // and then return the top N most frequent hashtags. The result is printed in a formatted table showing the hashtag and its count.
+// For large inputs there is also a parallel mode: each worker counts its slice of tweets into its own primitive-valued tables
+// (one per shard, chosen by hashtag hash), each shard is then merged and reduced to its own top N by a single task,
+// and the per-shard winners are combined with the same comparator as the sequential version.
+// A trend index buckets the counts by day or hour, so top N for any date range or rolling window merges only a few buckets.
+// A normalization stage can merge spellings like "#HappyDay!" and "#happyday", counting interned hashtag ids in an int[].
+// Tweet dumps can be read from memory-mapped CSV or JSONL files, counting hashtags as raw byte slices in parallel.
+// An approximate mode finds the heavy hitters in fixed memory and reports error bounds with every count.
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.Month;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.stream.Collectors;
 
 
@@ -29,7 +48,773 @@ public class Question_4_a {
         }
     }
 
-    public static void main(String[] args) {
+    // Orders hashtags by count in descending order, and by hashtag in descending order when counts are equal.
+    // Both the sequential and the parallel version rank with this comparator so they always agree on the result.
+    static final Comparator<HashtagCount> RANKING = (a, b) -> compareRank(a.hashtag, a.count, b.hashtag, b.count);
+
+    private static int compareRank(String hashtagA, int countA, String hashtagB, int countB) {
+        int countCompare = Integer.compare(countB, countA); // Compare by count in descending order
+        return (countCompare != 0) ? countCompare : hashtagB.compareTo(hashtagA); // If counts are equal, compare the hashtags
+    }
+
+    // This class is a small open-addressing hash table from hashtag to an int count.
+    // Unlike a HashMap<String, Integer> it does not box a new Integer on every increment.
+    static class HashtagCounter {
+        private String[] keys;
+        private int[] counts;
+        private int size;
+
+        public HashtagCounter(int expectedSize) {
+            int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2) - 1) << 1;
+            keys = new String[capacity];
+            counts = new int[capacity];
+        }
+
+        // Adds delta to the count of the given hashtag, inserting it if it is not present yet
+        public void add(String hashtag, int delta) {
+            int mask = keys.length - 1;
+            int slot = spread(hashtag.hashCode()) & mask;
+            while (keys[slot] != null) {
+                if (keys[slot].equals(hashtag)) {
+                    counts[slot] += delta;
+                    return;
+                }
+                slot = (slot + 1) & mask;  // Linear probing
+            }
+            keys[slot] = hashtag;
+            counts[slot] = delta;
+            if (++size * 2 > keys.length) resize();
+        }
+
+        // Returns the count of the given hashtag, or 0 if it was never added
+        public int get(String hashtag) {
+            int mask = keys.length - 1;
+            int slot = spread(hashtag.hashCode()) & mask;
+            while (keys[slot] != null) {
+                if (keys[slot].equals(hashtag)) return counts[slot];
+                slot = (slot + 1) & mask;
+            }
+            return 0;
+        }
+
+        public int size() { return size; }
+
+        // The table is iterated by slot: slots with a null key are empty
+        public int capacity() { return keys.length; }
+        public String keyAt(int slot) { return keys[slot]; }
+        public int countAt(int slot) { return counts[slot]; }
+
+        // Adds every count of the other table to this one
+        public void addAll(HashtagCounter other) {
+            for (int slot = 0; slot < other.keys.length; slot++) {
+                if (other.keys[slot] != null) add(other.keys[slot], other.counts[slot]);
+            }
+        }
+
+        // Returns the top N entries of this table, ordered by RANKING, using a bounded min-heap of size N
+        public List<HashtagCount> topN(int topN) {
+            PriorityQueue<HashtagCount> heap = new PriorityQueue<>(RANKING.reversed());
+            for (int slot = 0; slot < keys.length && topN > 0; slot++) {
+                if (keys[slot] == null || counts[slot] <= 0) continue;  // Skip empty slots and hashtags counted down to zero
+                if (heap.size() < topN) {
+                    heap.add(new HashtagCount(keys[slot], counts[slot]));
+                } else if (compareRank(keys[slot], counts[slot], heap.peek().hashtag, heap.peek().count) < 0) {
+                    heap.poll();  // Replace the weakest entry kept so far
+                    heap.add(new HashtagCount(keys[slot], counts[slot]));
+                }
+            }
+            List<HashtagCount> result = new ArrayList<>(heap);
+            result.sort(RANKING);
+            return result;
+        }
+
+        private void resize() {
+            String[] oldKeys = keys;
+            int[] oldCounts = counts;
+            keys = new String[oldKeys.length * 2];
+            counts = new int[oldKeys.length * 2];
+            size = 0;
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if (oldKeys[slot] != null) add(oldKeys[slot], oldCounts[slot]);
+            }
+        }
+
+        static int spread(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+    }
+
+    // This class is a hashtag count with error bounds, as returned by the approximate mode.
+    // The true count always lies in [lowerBound, count], and `guaranteed` is true when the hashtag
+    // is certainly in the top N whatever the true counts of the other hashtags are.
+    static class ApproximateHashtagCount extends HashtagCount {
+        int lowerBound;
+        boolean guaranteed;
+
+        public ApproximateHashtagCount(String hashtag, int count, int lowerBound, boolean guaranteed) {
+            super(hashtag, count);
+            this.lowerBound = lowerBound;
+            this.guaranteed = guaranteed;
+        }
+
+        @Override
+        public String toString() {
+            return hashtag + " " + count + " (>= " + lowerBound + (guaranteed ? ", guaranteed" : "") + ")";
+        }
+    }
+
+    // This class finds the most frequent hashtags of an unbounded stream in fixed memory.
+    // It monitors at most `capacity` hashtags with the Space-Saving algorithm: a new hashtag replaces the monitored hashtag
+    // with the smallest count and inherits that count as its error. The counters are kept in a "stream summary", a linked
+    // list of buckets ordered by count, so an update only moves one counter to the neighbouring bucket and costs O(1).
+    // A Count-Min Sketch of size ceil(e / epsilon) x ceil(ln(1 / delta)) runs next to it and tightens the upper bound
+    // of every reported count to at most epsilon * N above the true count with probability 1 - delta.
+    static class HeavyHitters {
+        private static class Counter {
+            String hashtag;
+            long count;  // Space-Saving estimate, never below the true count
+            long error;  // Maximum overestimation, i.e. the count inherited when this hashtag was taken in
+            Bucket bucket;
+            Counter prev, next;
+        }
+
+        private static class Bucket {
+            long count;
+            Counter head;
+            Bucket prev, next;  // Neighbouring buckets with smaller and larger counts
+        }
+
+        private final int capacity;
+        private final Map<String, Counter> monitored;
+        private Bucket minBucket;
+        private final long[][] sketch;
+        private final int width;
+        private long total;
+
+        public HeavyHitters(int capacity, double epsilon, double delta) {
+            if (capacity <= 0 || epsilon <= 0 || delta <= 0 || delta >= 1) {
+                throw new IllegalArgumentException("capacity and epsilon must be positive and delta in (0, 1)");
+            }
+            this.capacity = capacity;
+            this.monitored = new HashMap<>(capacity * 2);
+            this.width = (int) Math.ceil(Math.E / epsilon);
+            this.sketch = new long[(int) Math.ceil(Math.log(1 / delta))][width];
+        }
+
+        // Counts one occurrence of the hashtag
+        public void add(String hashtag) {
+            total++;
+            int h1 = hashtag.hashCode();
+            int h2 = HashtagCounter.spread(h1 * 0x9E3779B9) | 1;
+            for (int row = 0; row < sketch.length; row++) {
+                sketch[row][Math.floorMod(h1 + row * h2, width)]++;
+            }
+
+            Counter counter = monitored.get(hashtag);
+            if (counter == null) {
+                if (monitored.size() < capacity) {
+                    counter = new Counter();
+                    attach(counter, 0);
+                } else {
+                    counter = minBucket.head;  // Evict one of the hashtags with the smallest count
+                    monitored.remove(counter.hashtag);
+                    counter.error = counter.count;
+                }
+                counter.hashtag = hashtag;
+                monitored.put(hashtag, counter);
+            }
+            increment(counter);
+        }
+
+        // Returns the number of hashtags counted so far
+        public long totalCount() { return total; }
+
+        // Returns the bound on the overestimation of any reported count: N / capacity from Space-Saving,
+        // and epsilon * N from the sketch (with probability 1 - delta), whichever is smaller
+        public long errorBound() {
+            return Math.min(total / capacity, (long) Math.ceil(Math.E / width * total));
+        }
+
+        // Returns the count-min estimate of the hashtag, an upper bound on its true count
+        public long sketchEstimate(String hashtag) {
+            int h1 = hashtag.hashCode();
+            int h2 = HashtagCounter.spread(h1 * 0x9E3779B9) | 1;
+            long estimate = Long.MAX_VALUE;
+            for (int row = 0; row < sketch.length; row++) {
+                estimate = Math.min(estimate, sketch[row][Math.floorMod(h1 + row * h2, width)]);
+            }
+            return estimate;
+        }
+
+        // Returns the top N monitored hashtags ranked by their upper bound, each with its error bounds
+        public List<ApproximateHashtagCount> topN(int topN) {
+            List<HashtagCount> candidates = new ArrayList<>();
+            Map<String, Long> lowerBounds = new HashMap<>();
+            for (Counter counter : monitored.values()) {
+                long upper = Math.min(counter.count, sketchEstimate(counter.hashtag));
+                candidates.add(new HashtagCount(counter.hashtag, clamp(upper)));
+                lowerBounds.put(counter.hashtag, counter.count - counter.error);
+            }
+            candidates.sort(RANKING);
+
+            // A hashtag is certainly in the top N if its lower bound beats the upper bound of everything ranked after it,
+            // including hashtags that are not monitored at all (whose count is at most the smallest monitored count)
+            long bestExcluded = candidates.size() > topN ? candidates.get(topN).count : 0;
+            if (monitored.size() == capacity) bestExcluded = Math.max(bestExcluded, minBucket.count);
+            List<ApproximateHashtagCount> result = new ArrayList<>();
+            for (HashtagCount candidate : candidates.subList(0, Math.min(topN, candidates.size()))) {
+                long lower = lowerBounds.get(candidate.hashtag);
+                result.add(new ApproximateHashtagCount(candidate.hashtag, candidate.count, clamp(lower), lower > bestExcluded));
+            }
+            return result;
+        }
+
+        // Moves the counter from its bucket to the bucket for count + 1, creating that bucket if needed
+        private void increment(Counter counter) {
+            Bucket from = counter.bucket;
+            long newCount = counter.count + 1;
+            Bucket to = from.next;
+            if (to == null || to.count != newCount) {
+                to = new Bucket();
+                to.count = newCount;
+                to.prev = from;
+                to.next = from.next;
+                if (from.next != null) from.next.prev = to;
+                from.next = to;
+            }
+            detach(counter);
+            counter.count = newCount;
+            counter.bucket = to;
+            counter.prev = null;
+            counter.next = to.head;
+            if (to.head != null) to.head.prev = counter;
+            to.head = counter;
+        }
+
+        // Puts a fresh counter in the bucket for the given count, which must be the smallest count
+        private void attach(Counter counter, long count) {
+            if (minBucket == null || minBucket.count != count) {
+                Bucket bucket = new Bucket();
+                bucket.count = count;
+                bucket.next = minBucket;
+                if (minBucket != null) minBucket.prev = bucket;
+                minBucket = bucket;
+            }
+            counter.count = count;
+            counter.bucket = minBucket;
+            counter.next = minBucket.head;
+            if (minBucket.head != null) minBucket.head.prev = counter;
+            minBucket.head = counter;
+        }
+
+        // Unlinks the counter from its bucket and drops the bucket if it becomes empty
+        private void detach(Counter counter) {
+            Bucket bucket = counter.bucket;
+            if (counter.prev != null) counter.prev.next = counter.next; else bucket.head = counter.next;
+            if (counter.next != null) counter.next.prev = counter.prev;
+            if (bucket.head == null) {
+                if (bucket.prev != null) bucket.prev.next = bucket.next; else minBucket = bucket.next;
+                if (bucket.next != null) bucket.next.prev = bucket.prev;
+            }
+        }
+
+        private static int clamp(long count) {
+            return (int) Math.min(count, Integer.MAX_VALUE);
+        }
+    }
+
+    // This class indexes tweets once into count tables bucketed by day (or hour), so that the top hashtags of any
+    // time range can be answered by merging only the buckets inside that range, without rescanning the tweets.
+    // It also keeps a rolling window over the most recent buckets: when time moves past a bucket, that bucket's
+    // counts are subtracted from the running window table instead of recounting the whole window.
+    static class HashtagTrendIndex {
+        private final long bucketSeconds;
+        private final int windowBuckets;
+        private final TreeMap<Long, HashtagCounter> buckets = new TreeMap<>();
+        private HashtagCounter window = new HashtagCounter(64);
+        private long latestBucket = Long.MIN_VALUE;
+        private int expiredSinceRebuild;
+
+        // granularity is the bucket size (DAYS or HOURS), windowBuckets the length of the rolling window in buckets
+        public HashtagTrendIndex(ChronoUnit granularity, int windowBuckets) {
+            if (granularity != ChronoUnit.DAYS && granularity != ChronoUnit.HOURS) {
+                throw new IllegalArgumentException("Buckets must be DAYS or HOURS");
+            }
+            if (windowBuckets <= 0) throw new IllegalArgumentException("The window must hold at least one bucket");
+            this.bucketSeconds = granularity.getDuration().getSeconds();
+            this.windowBuckets = windowBuckets;
+        }
+
+        // Adds the hashtags of one tweet. The date column may be a date ("2024-02-01") or a date-time ("2024-02-01T10:15");
+        // tweets with an invalid date are ignored.
+        public void add(String[] tweet) {
+            LocalDateTime time = parseTime(tweet[2]);
+            if (time == null) return;
+            long bucket = bucketOf(time);
+            if (bucket > latestBucket) advanceTo(bucket);
+            boolean inWindow = bucket > latestBucket - windowBuckets;
+
+            HashtagCounter counts = buckets.computeIfAbsent(bucket, b -> new HashtagCounter(16));
+            for (String word : tweet[3].split("\\s+")) {
+                if (word.startsWith("#")) {
+                    counts.add(word, 1);
+                    if (inWindow) window.add(word, 1);
+                }
+            }
+        }
+
+        public void addAll(List<String[]> tweets) {
+            for (String[] tweet : tweets) add(tweet);
+        }
+
+        // Returns the top N hashtags of the tweets posted in [from, to), merging only the buckets in that range.
+        // Both ends are rounded down to a bucket boundary.
+        public List<HashtagCount> topN(LocalDateTime from, LocalDateTime to, int topN) {
+            Collection<HashtagCounter> range = buckets.subMap(bucketOf(from), true, bucketOf(to), false).values();
+            if (range.size() == 1) return range.iterator().next().topN(topN);
+            HashtagCounter merged = new HashtagCounter(64);
+            for (HashtagCounter counts : range) merged.addAll(counts);
+            return merged.topN(topN);
+        }
+
+        // Returns the top N hashtags of the rolling window, i.e. the last windowBuckets buckets up to the latest tweet seen
+        public List<HashtagCount> topNInWindow(int topN) {
+            return window.topN(topN);
+        }
+
+        // Drops every bucket before the given time, for when the history itself must be bounded.
+        // Dropped buckets that are still inside the rolling window are subtracted from it, since advanceTo can no longer find them.
+        public void discardBefore(LocalDateTime time) {
+            SortedMap<Long, HashtagCounter> discarded = buckets.headMap(bucketOf(time), false);
+            if (latestBucket != Long.MIN_VALUE) {
+                for (HashtagCounter counts : discarded.tailMap(latestBucket - windowBuckets + 1).values()) subtract(counts);
+            }
+            discarded.clear();
+        }
+
+        // Moves the rolling window forward so that it ends at the given bucket, subtracting the buckets that fall out of it
+        private void advanceTo(long bucket) {
+            if (latestBucket != Long.MIN_VALUE) {
+                long oldStart = latestBucket - windowBuckets + 1;
+                long newStart = bucket - windowBuckets + 1;
+                for (HashtagCounter expired : buckets.subMap(oldStart, true, newStart, false).values()) subtract(expired);
+            }
+            latestBucket = bucket;
+
+            // Subtracting leaves hashtags with a zero count behind; once a whole window has expired, rebuild the table
+            // from the live buckets so that it does not keep growing
+            if (expiredSinceRebuild >= windowBuckets) {
+                window = new HashtagCounter(window.size());
+                for (HashtagCounter counts : buckets.tailMap(bucket - windowBuckets + 1, true).values()) window.addAll(counts);
+                expiredSinceRebuild = 0;
+            }
+        }
+
+        // Removes a bucket's counts from the rolling window
+        private void subtract(HashtagCounter counts) {
+            for (int slot = 0; slot < counts.capacity(); slot++) {
+                if (counts.keyAt(slot) != null) window.add(counts.keyAt(slot), -counts.countAt(slot));
+            }
+            expiredSinceRebuild++;
+        }
+
+        private long bucketOf(LocalDateTime time) {
+            return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), bucketSeconds);
+        }
+
+        private static LocalDateTime parseTime(String dateStr) {
+            try {
+                return dateStr.length() == 10 ? LocalDate.parse(dateStr).atStartOfDay() : LocalDateTime.parse(dateStr);
+            } catch (DateTimeParseException e) {
+                return null;
+            }
+        }
+    }
+
+    // This class reads tweet dumps straight from a memory-mapped file. Records are split on '\n' and columns on raw bytes,
+    // and every hashtag is counted as a (buffer, offset, length) slice of the mapping, so no String is created per tweet
+    // or per hashtag. Only the hashtags that can make the final top N are decoded from UTF-8.
+    // The file is cut into segments at newline boundaries, and each segment is scanned by its own thread.
+    //
+    // Two layouts are supported, both using the same columns as the in-memory tweets (id, user, date, text):
+    // CSV  - "135,13,2024-02-01,Enjoying a great start to the day. #HappyDay", where the text is the rest of the line
+    //        and may be wrapped in double quotes;
+    // JSONL - {"id":"135","user":"13","date":"2024-02-01","text":"Enjoying a great start to the day. #HappyDay"}.
+    //        The \n, \t, \r and \f escapes in the text count as whitespace, and any other escape ends the current hashtag.
+    static class MappedTweetReader {
+        enum Format { CSV, JSONL }
+
+        private static final int MAX_SEGMENT = 1 << 30;  // A single mapping must stay below 2 GB
+        private static final byte[] DATE_KEY = "\"date\":\"".getBytes(StandardCharsets.US_ASCII);
+        private static final byte[] TEXT_KEY = "\"text\":\"".getBytes(StandardCharsets.US_ASCII);
+
+        // This class is an open-addressing hash table from a byte slice of a mapped buffer to an int count.
+        // Keys are not copied: each slot remembers the buffer, offset and length of the first occurrence.
+        static class SliceCounter {
+            private ByteBuffer[] buffers;
+            private int[] offsets, lengths, hashes, counts;
+            private int size;
+
+            public SliceCounter(int expectedSize) {
+                int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2) - 1) << 1;
+                buffers = new ByteBuffer[capacity];
+                offsets = new int[capacity];
+                lengths = new int[capacity];
+                hashes = new int[capacity];
+                counts = new int[capacity];
+            }
+
+            public void add(ByteBuffer buffer, int offset, int length, int hash, int delta) {
+                int mask = buffers.length - 1;
+                int slot = HashtagCounter.spread(hash) & mask;
+                while (buffers[slot] != null) {
+                    if (hashes[slot] == hash && sameBytes(buffers[slot], offsets[slot], lengths[slot], buffer, offset, length)) {
+                        counts[slot] += delta;
+                        return;
+                    }
+                    slot = (slot + 1) & mask;
+                }
+                buffers[slot] = buffer;
+                offsets[slot] = offset;
+                lengths[slot] = length;
+                hashes[slot] = hash;
+                counts[slot] = delta;
+                if (++size * 2 > buffers.length) resize();
+            }
+
+            public void addAll(SliceCounter other) {
+                for (int slot = 0; slot < other.buffers.length; slot++) {
+                    if (other.buffers[slot] != null) {
+                        add(other.buffers[slot], other.offsets[slot], other.lengths[slot], other.hashes[slot], other.counts[slot]);
+                    }
+                }
+            }
+
+            // Returns the top N hashtags. The N-th largest count is found on the counts alone, and only the hashtags
+            // with at least that count are decoded, because ties are broken by comparing the hashtags as Strings.
+            public List<HashtagCount> topN(int topN) {
+                if (topN <= 0 || size == 0) return new ArrayList<>();
+                PriorityQueue<Integer> largest = new PriorityQueue<>();
+                for (int slot = 0; slot < buffers.length; slot++) {
+                    if (buffers[slot] == null) continue;
+                    if (largest.size() < topN) largest.add(counts[slot]);
+                    else if (counts[slot] > largest.peek()) {
+                        largest.poll();
+                        largest.add(counts[slot]);
+                    }
+                }
+                int threshold = largest.peek();
+                List<HashtagCount> candidates = new ArrayList<>();
+                for (int slot = 0; slot < buffers.length; slot++) {
+                    if (buffers[slot] != null && counts[slot] >= threshold) {
+                        candidates.add(new HashtagCount(decode(buffers[slot], offsets[slot], lengths[slot]), counts[slot]));
+                    }
+                }
+                candidates.sort(RANKING);
+                return new ArrayList<>(candidates.subList(0, Math.min(topN, candidates.size())));
+            }
+
+            private void resize() {
+                ByteBuffer[] oldBuffers = buffers;
+                int[] oldOffsets = offsets, oldLengths = lengths, oldHashes = hashes, oldCounts = counts;
+                int capacity = oldBuffers.length * 2;
+                buffers = new ByteBuffer[capacity];
+                offsets = new int[capacity];
+                lengths = new int[capacity];
+                hashes = new int[capacity];
+                counts = new int[capacity];
+                size = 0;
+                for (int slot = 0; slot < oldBuffers.length; slot++) {
+                    if (oldBuffers[slot] != null) {
+                        add(oldBuffers[slot], oldOffsets[slot], oldLengths[slot], oldHashes[slot], oldCounts[slot]);
+                    }
+                }
+            }
+
+            private static boolean sameBytes(ByteBuffer a, int offsetA, int lengthA, ByteBuffer b, int offsetB, int lengthB) {
+                if (lengthA != lengthB) return false;
+                for (int i = 0; i < lengthA; i++) {
+                    if (a.get(offsetA + i) != b.get(offsetB + i)) return false;
+                }
+                return true;
+            }
+
+            private static String decode(ByteBuffer buffer, int offset, int length) {
+                byte[] bytes = new byte[length];
+                buffer.get(offset, bytes);
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        }
+
+        // This function returns the top N hashtags of the tweets from February 2024 in the given file,
+        // with the same result and ordering as findTopHashtags on the same tweets.
+        public static List<HashtagCount> findTopHashtags(Path file, Format format, int topN, int threads) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                List<MappedByteBuffer> segments = mapSegments(channel, threads);
+                ExecutorService executor = Executors.newFixedThreadPool(threads);
+                try {
+                    List<Future<SliceCounter>> counted = new ArrayList<>();
+                    for (MappedByteBuffer segment : segments) counted.add(executor.submit(() -> countSegment(segment, format)));
+                    SliceCounter total = new SliceCounter(1024);
+                    for (Future<SliceCounter> segmentCounts : counted) total.addAll(segmentCounts.get());
+                    return total.topN(topN);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while reading " + file, e);
+                } catch (ExecutionException e) {
+                    throw new IOException("Failed to read " + file, e.getCause());
+                } finally {
+                    executor.shutdown();
+                }
+            }
+        }
+
+        // This function cuts the file into roughly equal segments that each end right after a '\n', and maps each of them.
+        // There are at least `threads` segments (for small files fewer, since a segment holds at least one record),
+        // and more if needed to keep every mapping below MAX_SEGMENT.
+        static List<MappedByteBuffer> mapSegments(FileChannel channel, int threads) throws IOException {
+            long size = channel.size();
+            int count = (int) Math.max(threads, (size + MAX_SEGMENT - 1) / MAX_SEGMENT);
+            List<MappedByteBuffer> segments = new ArrayList<>();
+            long start = 0;
+            for (int i = 1; i <= count && start < size; i++) {
+                long end = (i == count) ? size : nextLineStart(channel, Math.max(start, size / count * i));
+                if (end > start) {
+                    segments.add(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start));
+                    start = end;
+                }
+            }
+            return segments;
+        }
+
+        // Returns the position just after the first '\n' at or after the given position, or the file size if there is none
+        private static long nextLineStart(FileChannel channel, long position) throws IOException {
+            ByteBuffer chunk = ByteBuffer.allocate(64 * 1024);
+            while (position < channel.size()) {
+                chunk.clear();
+                int read = channel.read(chunk, position);
+                if (read <= 0) break;
+                for (int i = 0; i < read; i++) {
+                    if (chunk.get(i) == '\n') return position + i + 1;
+                }
+                position += read;
+            }
+            return channel.size();
+        }
+
+        // This function scans one segment record by record and counts the hashtags of the tweets from February 2024
+        static SliceCounter countSegment(ByteBuffer segment, Format format) {
+            SliceCounter counts = new SliceCounter(1024);
+            int limit = segment.limit();
+            int lineStart = 0;
+            while (lineStart < limit) {
+                int lineEnd = lineStart;
+                while (lineEnd < limit && segment.get(lineEnd) != '\n') lineEnd++;
+                int end = (lineEnd > lineStart && segment.get(lineEnd - 1) == '\r') ? lineEnd - 1 : lineEnd;
+                if (format == Format.CSV) countCsvRecord(segment, lineStart, end, counts);
+                else countJsonRecord(segment, lineStart, end, counts);
+                lineStart = lineEnd + 1;
+            }
+            return counts;
+        }
+
+        private static void countCsvRecord(ByteBuffer buf, int start, int end, SliceCounter counts) {
+            int dateStart = skipFields(buf, start, end, 2);
+            int textStart = skipFields(buf, dateStart, end, 1);
+            if (textStart < 0 || !isFebruary2024(buf, dateStart, textStart - 1)) return;
+            int textEnd = end;
+            if (textStart < textEnd && buf.get(textStart) == '"') {
+                textStart++;
+                if (textEnd > textStart && buf.get(textEnd - 1) == '"') textEnd--;
+            }
+            countHashtags(buf, textStart, textEnd, counts, false);
+        }
+
+        private static void countJsonRecord(ByteBuffer buf, int start, int end, SliceCounter counts) {
+            int dateStart = valueStart(buf, start, end, DATE_KEY);
+            int textStart = valueStart(buf, start, end, TEXT_KEY);
+            if (dateStart < 0 || textStart < 0) return;
+            int dateEnd = dateStart;
+            while (dateEnd < end && buf.get(dateEnd) != '"') dateEnd++;
+            if (!isFebruary2024(buf, dateStart, dateEnd)) return;
+            countHashtags(buf, textStart, end, counts, true);
+        }
+
+        // Finds every word starting with '#' in [start, end) and counts it as a slice; a word ends at ASCII whitespace,
+        // like the "\\s+" split of findTopHashtags. In JSON mode the text ends at the first unescaped quote.
+        private static void countHashtags(ByteBuffer buf, int start, int end, SliceCounter counts, boolean json) {
+            int i = start;
+            while (i < end) {
+                byte b = buf.get(i);
+                if (json && b == '"') return;
+                if (json && b == '\\' && isWhitespaceEscape(buf, i, end)) {
+                    i += 2;
+                    continue;
+                }
+                if (isWhitespace(b)) {
+                    i++;
+                    continue;
+                }
+                int wordStart = i;
+                int wordEnd = -1;  // Set when an escape cuts the hashtag short
+                int hash = 0;
+                while (i < end) {
+                    b = buf.get(i);
+                    if (isWhitespace(b) || (json && b == '"')) break;
+                    if (json && b == '\\') {
+                        if (isWhitespaceEscape(buf, i, end)) break;
+                        if (wordEnd < 0) wordEnd = i;
+                        i += 2;  // Skip the escaped character, so an escaped quote does not end the text
+                        continue;
+                    }
+                    if (wordEnd < 0) hash = 31 * hash + b;
+                    i++;
+                }
+                if (wordEnd < 0) wordEnd = i;
+                if (buf.get(wordStart) == '#') counts.add(buf, wordStart, wordEnd - wordStart, hash, 1);
+            }
+        }
+
+        private static boolean isWhitespaceEscape(ByteBuffer buf, int i, int end) {
+            if (i + 1 >= end) return false;
+            byte escaped = buf.get(i + 1);
+            return escaped == 'n' || escaped == 't' || escaped == 'r' || escaped == 'f';
+        }
+
+        // Returns the start of the field after skipping `fields` commas, or -1 if the record has fewer fields
+        private static int skipFields(ByteBuffer buf, int position, int end, int fields) {
+            if (position < 0) return -1;
+            while (fields > 0) {
+                while (position < end && buf.get(position) != ',') position++;
+                if (position >= end) return -1;
+                position++;
+                fields--;
+            }
+            return position;
+        }
+
+        // Returns the position just after `"key":"` in [start, end), or -1 if the key is not there
+        private static int valueStart(ByteBuffer buf, int start, int end, byte[] key) {
+            for (int i = start; i + key.length <= end; i++) {
+                int j = 0;
+                while (j < key.length && buf.get(i + j) == key[j]) j++;
+                if (j == key.length) return i + key.length;
+            }
+            return -1;
+        }
+
+        // Checks on the raw bytes that [start, end) is a valid date "2024-02-DD", with the same result as isFebruary2024
+        private static boolean isFebruary2024(ByteBuffer buf, int start, int end) {
+            if (end - start != 10) return false;
+            for (int i = 0; i < 8; i++) {
+                if (buf.get(start + i) != "2024-02-".charAt(i)) return false;
+            }
+            int tens = buf.get(start + 8) - '0', units = buf.get(start + 9) - '0';
+            if (tens < 0 || tens > 9 || units < 0 || units > 9) return false;
+            int day = tens * 10 + units;
+            return day >= 1 && day <= 29;  // 2024 is a leap year
+        }
+
+        private static boolean isWhitespace(byte b) {
+            return b == ' ' || b == '\t' || b == '\n' || b == 0x0B || b == '\f' || b == '\r';
+        }
+    }
+
+    // This class decides which spelling of a hashtag is counted. With stripPunctuation, trailing characters that are not
+    // letters, digits or '_' are dropped ("#HappyDay!" becomes "#HappyDay"); with foldCase, hashtags are compared and
+    // reported in lower case ("#HappyDay" becomes "#happyday"). Both work on a range of the tweet text, without copying it.
+    static class HashtagNormalizer {
+        final boolean stripPunctuation;
+        final boolean foldCase;
+
+        public HashtagNormalizer(boolean stripPunctuation, boolean foldCase) {
+            this.stripPunctuation = stripPunctuation;
+            this.foldCase = foldCase;
+        }
+
+        // Returns the end of the normalized hashtag text[start, end), or start if stripping leaves nothing after the '#'
+        public int trimEnd(CharSequence text, int start, int end) {
+            if (!stripPunctuation) return end;
+            while (end > start + 1 && !isHashtagChar(text.charAt(end - 1))) end--;
+            return end > start + 1 ? end : start;
+        }
+
+        public char fold(char c) {
+            return foldCase ? Character.toLowerCase(c) : c;
+        }
+
+        private static boolean isHashtagChar(char c) {
+            return Character.isLetterOrDigit(c) || c == '_' || Character.isSurrogate(c);
+        }
+    }
+
+    // This class interns normalized hashtags: every distinct hashtag gets a dense int id (0, 1, 2, ...), so counts can live
+    // in a plain int[] indexed by id. Looking up a hashtag reads it straight from the tweet text and only creates a String
+    // the first time that hashtag is seen.
+    static class HashtagDictionary {
+        private final HashtagNormalizer normalizer;
+        private int[] table;  // Open-addressing table of id + 1, 0 for an empty slot
+        private final List<String> hashtags = new ArrayList<>();
+        private int[] hashes = new int[16];
+
+        public HashtagDictionary(HashtagNormalizer normalizer) {
+            this.normalizer = normalizer;
+            this.table = new int[64];
+        }
+
+        // Returns the id of the normalized hashtag text[start, end), assigning a new id if needed,
+        // or -1 if nothing is left of it after normalization
+        public int idOf(CharSequence text, int start, int end) {
+            end = normalizer.trimEnd(text, start, end);
+            if (end == start) return -1;
+            int hash = 0;
+            for (int i = start; i < end; i++) hash = 31 * hash + normalizer.fold(text.charAt(i));
+
+            int mask = table.length - 1;
+            int slot = HashtagCounter.spread(hash) & mask;
+            while (table[slot] != 0) {
+                int id = table[slot] - 1;
+                if (hashes[id] == hash && matches(hashtags.get(id), text, start, end)) return id;
+                slot = (slot + 1) & mask;
+            }
+
+            int id = hashtags.size();
+            StringBuilder hashtag = new StringBuilder(end - start);
+            for (int i = start; i < end; i++) hashtag.append(normalizer.fold(text.charAt(i)));
+            hashtags.add(hashtag.toString());
+            if (id == hashes.length) hashes = Arrays.copyOf(hashes, id * 2);
+            hashes[id] = hash;
+            table[slot] = id + 1;
+            if (hashtags.size() * 2 > table.length) resize();
+            return id;
+        }
+
+        // Returns the hashtag with the given id
+        public String hashtag(int id) { return hashtags.get(id); }
+
+        // Returns the number of distinct hashtags, which is also the first unused id
+        public int size() { return hashtags.size(); }
+
+        private boolean matches(String hashtag, CharSequence text, int start, int end) {
+            if (hashtag.length() != end - start) return false;
+            for (int i = start; i < end; i++) {
+                if (hashtag.charAt(i - start) != normalizer.fold(text.charAt(i))) return false;
+            }
+            return true;
+        }
+
+        private void resize() {
+            table = new int[table.length * 2];
+            int mask = table.length - 1;
+            for (int id = 0; id < hashtags.size(); id++) {
+                int slot = HashtagCounter.spread(hashes[id]) & mask;
+                while (table[slot] != 0) slot = (slot + 1) & mask;
+                table[slot] = id + 1;
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
         // Sample Input (February 2024 tweets)
         List<String[]> tweets = new ArrayList<>();
         tweets.add(new String[]{"135", "13", "2024-02-01", "Enjoying a great start to the day. #HappyDay #MorningVibes"});
@@ -51,6 +836,52 @@ public class Question_4_a {
             System.out.printf("| %-10s| %-6d|%n", hc.hashtag, hc.count);
         }
         System.out.println("+-----------+-------+");
+
+        // The parallel mode must produce exactly the same ranking
+        List<HashtagCount> parallelResult = findTopHashtagsParallel(tweets, 3, 4);
+        System.out.println("Parallel matches sequential: " + sameRanking(result, parallelResult));
+
+        // The approximate mode keeps at most 8 hashtags in memory and reports error bounds with each count
+        List<ApproximateHashtagCount> approximate = findTopHashtagsApproximate(tweets, 3, new HeavyHitters(8, 0.01, 0.01));
+        System.out.println("Approximate top 3: " + approximate);
+
+        // The trend index answers any date range from its daily buckets; February 2024 gives the same result as above
+        HashtagTrendIndex index = new HashtagTrendIndex(ChronoUnit.DAYS, 7);
+        index.addAll(tweets);
+        List<HashtagCount> february = index.topN(LocalDate.of(2024, 2, 1).atStartOfDay(), LocalDate.of(2024, 3, 1).atStartOfDay(), 3);
+        System.out.println("Trend index matches sequential: " + sameRanking(result, february));
+        System.out.println("Top 3 of the last 7 days: " + index.topNInWindow(3));
+
+        // The same tweets written to CSV and JSONL files and read back through memory-mapped files
+        Path csv = Files.createTempFile("tweets", ".csv");
+        Path jsonl = Files.createTempFile("tweets", ".jsonl");
+        try {
+            List<String> csvLines = new ArrayList<>();
+            List<String> jsonLines = new ArrayList<>();
+            for (String[] tweet : tweets) {
+                csvLines.add(String.join(",", tweet));
+                jsonLines.add(String.format("{\"id\":\"%s\",\"user\":\"%s\",\"date\":\"%s\",\"text\":\"%s\"}",
+                        tweet[0], tweet[1], tweet[2], tweet[3]));
+            }
+            Files.write(csv, csvLines, StandardCharsets.UTF_8);
+            Files.write(jsonl, jsonLines, StandardCharsets.UTF_8);
+            List<HashtagCount> fromCsv = MappedTweetReader.findTopHashtags(csv, MappedTweetReader.Format.CSV, 3, 2);
+            List<HashtagCount> fromJsonl = MappedTweetReader.findTopHashtags(jsonl, MappedTweetReader.Format.JSONL, 3, 2);
+            System.out.println("Mapped CSV/JSONL match sequential: " + (sameRanking(result, fromCsv) && sameRanking(result, fromJsonl)));
+        } finally {
+            Files.deleteIfExists(csv);
+            Files.deleteIfExists(jsonl);
+        }
+
+        // With normalization "#HappyDay!" and "#happyday" are counted as "#happyday"
+        List<String[]> mixedCase = new ArrayList<>(tweets);
+        mixedCase.add(new String[]{"142", "20", "2024-02-10", "What a #happyday! #TechLife, #techlife."});
+        System.out.println("Normalized top 3: " + findTopHashtagsNormalized(mixedCase, 3, new HashtagNormalizer(true, true)));
+
+        // Run with "--bench" to measure how the parallel mode scales with the number of threads
+        if (args.length > 0 && args[0].equals("--bench")) {
+            benchmarkParallel(2_000_000, 50_000, 10);
+        }
     }
 
     // This function takes a list of tweets and an integer topN, and returns a list of the top N most frequent hashtags
@@ -76,10 +907,7 @@ public class Question_4_a {
 
         // Sort the hashtags by frequency in descending order, and lexicographically by hashtag in case of ties
         List<Map.Entry<String, Integer>> sortedEntries = new ArrayList<>(hashtagCounts.entrySet());
-        sortedEntries.sort((a, b) -> {
-            int countCompare = b.getValue().compareTo(a.getValue()); // Compare by count in descending order
-            return (countCompare != 0) ? countCompare : b.getKey().compareTo(a.getKey()); // If counts are equal, compare lexicographically
-        });
+        sortedEntries.sort((a, b) -> compareRank(a.getKey(), a.getValue(), b.getKey(), b.getValue()));
 
         // Limit the list to the top N hashtags and return as a list of HashtagCount objects
         return sortedEntries.stream()
@@ -88,6 +916,163 @@ public class Question_4_a {
                 .collect(Collectors.toList());
     }
 
+    // This function returns the same result as findTopHashtags, but splits the work over the given number of threads.
+    // Each worker counts its contiguous slice of tweets into its own set of shard tables (the shard is picked by the hashtag hash),
+    // so counting needs no locks at all. Then one task per shard merges that shard's tables from every worker and keeps only
+    // the shard's top N. Since a hashtag lives in exactly one shard, the global top N is always among the per-shard winners.
+    public static List<HashtagCount> findTopHashtagsParallel(List<String[]> tweets, int topN, int threads) {
+        if (threads <= 0) throw new IllegalArgumentException("threads must be positive");
+        int shards = Integer.highestOneBit(Math.max(1, threads * 2 - 1)) << 1;  // Power of two, so the shard is a bit mask
+        int chunk = (tweets.size() + threads - 1) / threads;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            // Phase 1: every worker counts its slice of tweets into its own shard tables
+            List<Future<HashtagCounter[]>> counted = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int from = Math.min(tweets.size(), t * chunk);
+                int to = Math.min(tweets.size(), from + chunk);
+                counted.add(executor.submit(() -> countSlice(tweets, from, to, shards)));
+            }
+            HashtagCounter[][] local = new HashtagCounter[threads][];
+            for (int t = 0; t < threads; t++) local[t] = counted.get(t).get();
+
+            // Phase 2: one task per shard merges the shard and selects its own top N
+            List<Future<List<HashtagCount>>> shardTops = new ArrayList<>();
+            for (int s = 0; s < shards; s++) {
+                int shard = s;
+                shardTops.add(executor.submit(() -> {
+                    HashtagCounter merged = local[0][shard];
+                    for (int t = 1; t < threads; t++) merged.addAll(local[t][shard]);
+                    return merged.topN(topN);
+                }));
+            }
+
+            // Phase 3: combine the per-shard winners with the same ranking as the sequential version
+            List<HashtagCount> candidates = new ArrayList<>();
+            for (Future<List<HashtagCount>> shardTop : shardTops) candidates.addAll(shardTop.get());
+            candidates.sort(RANKING);
+            return new ArrayList<>(candidates.subList(0, Math.min(topN, candidates.size())));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while counting hashtags", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Hashtag counting failed", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    // This function counts the hashtags of tweets[from, to) from February 2024 into one table per shard.
+    private static HashtagCounter[] countSlice(List<String[]> tweets, int from, int to, int shards) {
+        HashtagCounter[] tables = new HashtagCounter[shards];
+        for (int s = 0; s < shards; s++) tables[s] = new HashtagCounter(64);
+        for (int i = from; i < to; i++) {
+            String[] tweet = tweets.get(i);
+            if (!isFebruary2024(tweet[2])) continue;
+            for (String word : tweet[3].split("\\s+")) {
+                if (word.startsWith("#")) {
+                    tables[shardOf(word, shards)].add(word, 1);
+                }
+            }
+        }
+        return tables;
+    }
+
+    // This function picks the shard of a hashtag from the top bits of its multiplied hash. The shard tables place keys by the
+    // low bits of the hash, so taking the shard from those as well would leave only 1 in `shards` slots usable as home slots.
+    // `shards` is a power of two and at least 2.
+    private static int shardOf(String word, int shards) {
+        return (word.hashCode() * 0x9E3779B9) >>> (32 - Integer.numberOfTrailingZeros(shards));
+    }
+
+    // This function is the approximate version of findTopHashtags. It streams the hashtags of tweets from February 2024
+    // through the given HeavyHitters, so memory stays fixed by its configuration however many distinct hashtags there are.
+    // The same HeavyHitters can be fed batch after batch to keep the ranking up to date on a continuous stream.
+    public static List<ApproximateHashtagCount> findTopHashtagsApproximate(List<String[]> tweets, int topN, HeavyHitters heavyHitters) {
+        for (String[] tweet : tweets) {
+            if (!isFebruary2024(tweet[2])) continue;
+            for (String word : tweet[3].split("\\s+")) {
+                if (word.startsWith("#")) heavyHitters.add(word);
+            }
+        }
+        return heavyHitters.topN(topN);
+    }
+
+    // This function is findTopHashtags with a normalization stage: hashtags are normalized while they are read from the
+    // tweet text, interned to dense ids by a HashtagDictionary and counted in an int[], so a String is only created for
+    // each distinct hashtag instead of for every word. Words are split on whitespace like the "\\s+" split.
+    public static List<HashtagCount> findTopHashtagsNormalized(List<String[]> tweets, int topN, HashtagNormalizer normalizer) {
+        HashtagDictionary dictionary = new HashtagDictionary(normalizer);
+        int[] counts = new int[64];
+        for (String[] tweet : tweets) {
+            if (!isFebruary2024(tweet[2])) continue;
+            String text = tweet[3];
+            int i = 0;
+            while (i < text.length()) {
+                while (i < text.length() && isSplitWhitespace(text.charAt(i))) i++;
+                int wordStart = i;
+                while (i < text.length() && !isSplitWhitespace(text.charAt(i))) i++;
+                if (i > wordStart && text.charAt(wordStart) == '#') {
+                    int id = dictionary.idOf(text, wordStart, i);
+                    if (id < 0) continue;
+                    if (id == counts.length) counts = Arrays.copyOf(counts, id * 2);
+                    counts[id]++;
+                }
+            }
+        }
+
+        // Keep the best N ids in a bounded min-heap, ranked exactly like the other versions
+        int[] finalCounts = counts;
+        PriorityQueue<Integer> heap = new PriorityQueue<>((a, b) ->
+                compareRank(dictionary.hashtag(b), finalCounts[b], dictionary.hashtag(a), finalCounts[a]));
+        for (int id = 0; id < dictionary.size() && topN > 0; id++) {
+            heap.add(id);
+            if (heap.size() > topN) heap.poll();
+        }
+        List<HashtagCount> result = new ArrayList<>();
+        for (int id : heap) result.add(new HashtagCount(dictionary.hashtag(id), finalCounts[id]));
+        result.sort(RANKING);
+        return result;
+    }
+
+    // The characters matched by "\\s" in findTopHashtags
+    private static boolean isSplitWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+
+    // This function checks that two results list the same hashtags with the same counts in the same order.
+    private static boolean sameRanking(List<HashtagCount> a, List<HashtagCount> b) {
+        if (a.size() != b.size()) return false;
+        for (int i = 0; i < a.size(); i++) {
+            if (!a.get(i).hashtag.equals(b.get(i).hashtag) || a.get(i).count != b.get(i).count) return false;
+        }
+        return true;
+    }
+
+    // This function generates random February 2024 tweets and times the sequential version against the parallel version
+    // for 1, 2, 4, ... threads up to the number of available cores.
+    private static void benchmarkParallel(int tweetCount, int distinctHashtags, int topN) {
+        Random random = new Random(42);
+        List<String[]> tweets = new ArrayList<>(tweetCount);
+        for (int i = 0; i < tweetCount; i++) {
+            String date = String.format("2024-02-%02d", 1 + random.nextInt(29));
+            String text = "Tweet " + i + " #tag" + random.nextInt(distinctHashtags) + " #tag" + random.nextInt(distinctHashtags / 10);
+            tweets.add(new String[]{String.valueOf(i), String.valueOf(i % 1000), date, text});
+        }
+
+        long start = System.nanoTime();
+        List<HashtagCount> expected = findTopHashtags(tweets, topN);
+        System.out.printf("sequential: %d ms%n", (System.nanoTime() - start) / 1_000_000);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            start = System.nanoTime();
+            List<HashtagCount> actual = findTopHashtagsParallel(tweets, topN, threads);
+            System.out.printf("parallel x%d: %d ms (same result: %b)%n",
+                    threads, (System.nanoTime() - start) / 1_000_000, sameRanking(expected, actual));
+        }
+    }
+
     // This function checks if a given date string represents a date in February 2024.
     private static boolean isFebruary2024(String dateStr) {
         try {
@@ -104,3 +1089,10 @@ public class Question_4_a {
 // The process involves filtering tweets based on date, extracting hashtags, counting their occurrences, and sorting them by frequency. 
 // It handles ties by sorting hashtags lexicographically. The algorithm returns the top N hashtags and prints them in a formatted table. 
 // The algorithm works as expected, providing the correct top hashtags based on the given input tweets.
+// The parallel mode counts without locks into per-worker shard tables, merges each shard independently,
+// and returns exactly the same ranking as the sequential version.
+// The approximate mode (Space-Saving with a Count-Min Sketch) uses fixed memory and O(1) work per hashtag,
+// and reports for each hashtag the range its true count lies in.
+// The trend index answers arbitrary date ranges and a rolling window from per-bucket counts, without rescanning tweets.
+// Normalized counting interns each distinct hashtag once and counts ids in an int[] instead of boxing per occurrence.
+// The mapped reader ingests large tweet files without creating a String per tweet, decoding only the winning hashtags.
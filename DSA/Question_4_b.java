@@ -2,64 +2,237 @@
 // The city is represented as a graph where nodes are locations, and roads between locations are edges.
 // The goal is to determine the fewest steps required to cover all the packages, with each step involving visiting a location and gathering all packages that are within two steps from that location.
 // This problem can be viewed as a variation of the "minimum set cover" problem, where we try to find the fewest nodes that can collectively cover all the packages.
+// The graph is stored in CSR form (two int arrays), and the packages within two steps of every node are precomputed as bitsets
+// by OR-ing neighbour bitsets, in parallel over the nodes.
+// The BFS for every start node shares one flat visited table and a primitive ring-buffer queue of packed (node, mask) states,
+// and skips states whose lower bound on the remaining steps cannot beat the best answer found so far.
+// For more packages than the state table can hold, solve() switches to greedy set cover on long[] bitsets with local search,
+// and reports which strategy produced the answer.
+// The BFS of the different start nodes run in parallel, sharing the best answer so far through an AtomicInteger.
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
 public class Question_4_b {
 
-    // This class represents a state in the search algorithm with a node, a bitmask representing the packages collected, and the number of steps taken so far.
-    private static class State {
-        int node;  // Current node (location)
-        int mask;  // Bitmask representing which packages are collected (1 for collected, 0 for not collected)
-        int steps; // Number of steps taken so far
+    // This class stores the road graph in compressed sparse row (CSR) form: the neighbours of node u are
+    // targets[offsets[u]] .. targets[offsets[u + 1] - 1]. Two flat int arrays replace a list of boxed Integer lists.
+    static class CsrGraph {
+        final int n;
+        final int[] offsets;
+        final int[] targets;
 
-        // Constructor to initialize a state
-        public State(int node, int mask, int steps) {
-            this.node = node;
-            this.mask = mask;
-            this.steps = steps;
+        private CsrGraph(int n, int[] offsets, int[] targets) {
+            this.n = n;
+            this.offsets = offsets;
+            this.targets = targets;
+        }
+
+        // Builds the undirected graph with a counting pass over the roads, then a fill pass
+        static CsrGraph fromRoads(int n, int[][] roads) {
+            int[] offsets = new int[n + 1];
+            for (int[] road : roads) {
+                offsets[road[0] + 1]++;
+                offsets[road[1] + 1]++;
+            }
+            for (int u = 0; u < n; u++) offsets[u + 1] += offsets[u];
+            int[] targets = new int[offsets[n]];
+            int[] next = Arrays.copyOf(offsets, n);
+            for (int[] road : roads) {
+                targets[next[road[0]]++] = road[1];
+                targets[next[road[1]]++] = road[0];
+            }
+            return new CsrGraph(n, offsets, targets);
         }
     }
 
-    // This function builds an adjacency list from the given roads. Each node (location) will be connected to its neighbors.
-    private static List<List<Integer>> buildAdjacencyList(int n, int[][] roads) {
-        List<List<Integer>> adj = new ArrayList<>();
-        for (int i = 0; i < n; i++) adj.add(new ArrayList<>());
-        for (int[] road : roads) {
-            int u = road[0], v = road[1];
-            adj.get(u).add(v);
-            adj.get(v).add(u);
+    // This function computes, for every node, the bitset of packages within two steps of it.
+    // Bitsets are stored flat: node u owns words[u * words .. (u + 1) * words - 1], one bit per package index.
+    // The nodes within one step of u carry packages own(u) | own(neighbours), and the nodes within two steps carry
+    // oneStep(u) | oneStep(neighbours), so each level is just an OR of neighbour bitsets, 64 packages per operation.
+    // Both levels are computed in parallel over the nodes, since every node only writes its own words.
+    static long[] twoStepCoverage(CsrGraph graph, int[] packageIndex, int words) {
+        int n = graph.n;
+        long[] own = new long[n * words];
+        for (int u = 0; u < n; u++) {
+            if (packageIndex[u] >= 0) own[u * words + (packageIndex[u] >>> 6)] |= 1L << packageIndex[u];
         }
-        return adj;
+        long[] oneStep = orWithNeighbours(graph, own, words);
+        return orWithNeighbours(graph, oneStep, words);
     }
 
-    // This function returns all nodes that are within two steps (two hops) of a given node.
-    private static Set<Integer> getNodesWithinTwoSteps(int u, List<List<Integer>> adj) {
-        Set<Integer> visited = new HashSet<>();
-        Queue<Integer> queue = new LinkedList<>();
-        queue.add(u);
-        visited.add(u);
-        int steps = 0;
+    // Returns result[u] = bits[u] | bits[v] for every neighbour v of u
+    private static long[] orWithNeighbours(CsrGraph graph, long[] bits, int words) {
+        long[] result = new long[bits.length];
+        IntStream.range(0, graph.n).parallel().forEach(u -> {
+            int base = u * words;
+            System.arraycopy(bits, base, result, base, words);
+            for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) {
+                int neighbourBase = graph.targets[e] * words;
+                for (int w = 0; w < words; w++) result[base + w] |= bits[neighbourBase + w];
+            }
+        });
+        return result;
+    }
+
+    // This class runs the state-space BFS of minRoads for one start node at a time, reusing the same memory for every start.
+    // A state (node, mask) is packed into one long (node in the high 32 bits, mask in the low 32 bits) and queued in a
+    // primitive ring buffer. Visited states are marked in one flat int table of n * 2^P entries holding the number of the
+    // search that last visited them, so the table never has to be cleared between starts.
+    // Several searches can run in parallel: each thread gets its own copy (see the copy constructor) that shares the
+    // read-only graph, coverage and package distances but owns its visited table, queue and start distances.
+    // States that cannot beat the best answer found so far are pruned with a lower bound on the steps still needed:
+    // the walk must get back to the start, and for every uncollected package p it must visit some node w within two steps
+    // of p (w is not the current node, whose packages are already collected), which takes at least
+    // max(1, dist(node, p) + dist(p, start) - 4) steps.
+    static class StateSpaceSearch {
+        private final CsrGraph graph;
+        private final int[] coverageMasks;
+        private final int totalPackages;
+        private final int fullMask;
+        private final int[][] packageDistances;  // packageDistances[p][u] = steps from package p to node u, -1 if unreachable
+        private final int[] startDistances;      // Steps from the current start to every node, -1 if unreachable
+        private final int[] visited;             // Search number that last visited each state, indexed by (node << P) | mask
+        private final int[] nodeQueue;           // Queue of the hop-distance BFS from each start
+        private int searchNumber;
+        private long[] queue = new long[1024];   // Ring buffer, capacity always a power of two
+
+        StateSpaceSearch(CsrGraph graph, int[] coverageMasks, List<Integer> packageIndices) {
+            this.graph = graph;
+            this.coverageMasks = coverageMasks;
+            this.totalPackages = packageIndices.size();
+            this.fullMask = (1 << totalPackages) - 1;
+            this.nodeQueue = new int[graph.n];
+            this.packageDistances = new int[totalPackages][];
+            for (int p = 0; p < totalPackages; p++) packageDistances[p] = hopDistances(graph, packageIndices.get(p), new int[graph.n], nodeQueue);
+            this.startDistances = new int[graph.n];
+            this.visited = new int[graph.n << totalPackages];
+        }
+
+        // Creates a search for another thread, sharing the read-only data of `shared` but with its own buffers
+        StateSpaceSearch(StateSpaceSearch shared) {
+            this.graph = shared.graph;
+            this.coverageMasks = shared.coverageMasks;
+            this.totalPackages = shared.totalPackages;
+            this.fullMask = shared.fullMask;
+            this.packageDistances = shared.packageDistances;
+            this.nodeQueue = new int[graph.n];
+            this.startDistances = new int[graph.n];
+            this.visited = new int[graph.n << totalPackages];
+        }
+
+        // Returns the fewest steps of a walk that starts and ends at `start` and collects every package, or
+        // Integer.MAX_VALUE if there is no such walk shorter than `best`. `best` is the best answer over all starts:
+        // it is lowered when this search finds a shorter walk, and re-read after every BFS level, so the search
+        // stops as soon as its depth reaches an answer found by another thread.
+        int search(int start, AtomicInteger best) {
+            searchNumber++;
+            hopDistances(graph, start, startDistances, nodeQueue);
+            int initialMask = coverageMasks[start];
+            int bound = best.get();
+            if (lowerBound(start, initialMask, start) >= bound) return Integer.MAX_VALUE;
+
+            int head = 0, tail = 1, size = 1;
+            queue[0] = pack(start, initialMask);
+            visited[(start << totalPackages) | initialMask] = searchNumber;
 
-        while (!queue.isEmpty() && steps < 2) {
-            int size = queue.size();
-            for (int i = 0; i < size; i++) {
-                int current = queue.poll();
-                for (int neighbor : adj.get(current)) {
-                    if (!visited.contains(neighbor)) {
-                        visited.add(neighbor);
-                        queue.add(neighbor);
+            // Level by level, so the number of steps is the level number and does not need to be stored per state
+            int steps = 0, levelRemaining = 1, nextLevel = 0;
+            while (size > 0) {
+                long state = queue[head];
+                head = (head + 1) & (queue.length - 1);
+                size--;
+                int node = (int) (state >>> 32);
+                int mask = (int) state;
+                if (node == start && mask == fullMask) {
+                    best.accumulateAndGet(steps, Math::min);
+                    return steps;
+                }
+
+                for (int e = graph.offsets[node]; e < graph.offsets[node + 1]; e++) {
+                    int neighbor = graph.targets[e];
+                    int newMask = mask | coverageMasks[neighbor];
+                    int index = (neighbor << totalPackages) | newMask;
+                    if (visited[index] == searchNumber) continue;
+                    visited[index] = searchNumber;
+                    if (steps + 1 + lowerBound(neighbor, newMask, start) >= bound) continue;  // Cannot beat the best answer
+                    if (size == queue.length) {
+                        grow(head, size);
+                        head = 0;
+                        tail = size;
                     }
+                    queue[tail] = pack(neighbor, newMask);
+                    tail = (tail + 1) & (queue.length - 1);
+                    size++;
+                    nextLevel++;
+                }
+                if (--levelRemaining == 0) {
+                    steps++;
+                    levelRemaining = nextLevel;
+                    nextLevel = 0;
+                    bound = best.get();
+                    if (steps >= bound) return Integer.MAX_VALUE;  // Deeper levels cannot beat the best answer any more
                 }
             }
-            steps++;
+            return Integer.MAX_VALUE;
+        }
+
+        // Returns a lower bound on the steps needed to collect the remaining packages and get back to the start
+        private int lowerBound(int node, int mask, int start) {
+            if (startDistances[node] < 0) return Integer.MAX_VALUE;
+            int bound = startDistances[node];
+            for (int p = 0; p < totalPackages; p++) {
+                if ((mask & (1 << p)) != 0) continue;
+                int toPackage = packageDistances[p][node];
+                if (toPackage < 0) return Integer.MAX_VALUE;
+                bound = Math.max(bound, Math.max(1, toPackage + packageDistances[p][start] - 4));
+            }
+            return bound;
+        }
+
+        // Doubles the ring buffer, moving the `size` queued states starting at `head` to the front
+        private void grow(int head, int size) {
+            long[] bigger = new long[queue.length * 2];
+            for (int i = 0; i < size; i++) bigger[i] = queue[(head + i) & (queue.length - 1)];
+            queue = bigger;
+        }
+
+        private static long pack(int node, int mask) {
+            return ((long) node << 32) | (mask & 0xFFFFFFFFL);
         }
-        return visited;
+    }
+
+    // This function fills `distances` with the number of steps from `source` to every node (-1 if unreachable) and returns it.
+    // `queue` is scratch space of at least graph.n entries, so repeated calls allocate nothing.
+    static int[] hopDistances(CsrGraph graph, int source, int[] distances, int[] queue) {
+        Arrays.fill(distances, -1);
+        int head = 0, tail = 0;
+        queue[tail++] = source;
+        distances[source] = 0;
+        while (head < tail) {
+            int u = queue[head++];
+            for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) {
+                int v = graph.targets[e];
+                if (distances[v] < 0) {
+                    distances[v] = distances[u] + 1;
+                    queue[tail++] = v;
+                }
+            }
+        }
+        return distances;
     }
 
     // This function finds the minimum number of roads required to collect all packages.
     // It uses a breadth-first search (BFS) with a state-space representation where each state consists of a node and a bitmask of collected packages.
     public static int minRoads(int[] packages, int[][] roads) {
+        return minRoads(packages, roads, Runtime.getRuntime().availableProcessors());
+    }
+
+    // This function is minRoads with the BFS of the different start nodes spread over the given number of threads.
+    // The state table must fit in MAX_EXACT_STATES; larger instances throw IllegalArgumentException and need solve().
+    public static int minRoads(int[] packages, int[][] roads, int threads) {
         int n = packages.length;
         List<Integer> packageIndices = new ArrayList<>();
         // Collect all package indices (nodes that have a package)
@@ -70,56 +243,253 @@ public class Question_4_b {
         if (packageIndices.isEmpty()) return 0;
 
         int totalPackages = packageIndices.size();
+        if (totalPackages > 31 || ((long) n << totalPackages) > MAX_EXACT_STATES) {
+            throw new IllegalArgumentException("Too many packages for the exact search (" + totalPackages + " packages on "
+                    + n + " nodes), use solve()");
+        }
         int fullMask = (1 << totalPackages) - 1;  // Bitmask representing all packages collected
-        List<List<Integer>> adj = buildAdjacencyList(n, roads);  // Build the adjacency list (graph)
+        CsrGraph graph = CsrGraph.fromRoads(n, roads);  // Build the graph in CSR form
 
         // Precompute the coverage mask for each node, i.e., which packages can be collected by visiting that node
+        int[] packageIndex = new int[n];
+        Arrays.fill(packageIndex, -1);
+        for (int i = 0; i < totalPackages; i++) packageIndex[packageIndices.get(i)] = i;
+        long[] coverage = twoStepCoverage(graph, packageIndex, 1);  // At most 31 packages fit in one word
         int[] coverageMasks = new int[n];
-        for (int u = 0; u < n; u++) {
-            Set<Integer> withinTwoSteps = getNodesWithinTwoSteps(u, adj);  // Get all nodes within two steps of node u
-            int mask = 0;
-            for (int i = 0; i < totalPackages; i++) {
-                if (withinTwoSteps.contains(packageIndices.get(i))) {
-                    mask |= (1 << i);  // Set the corresponding bit for packages within two steps
+        for (int u = 0; u < n; u++) coverageMasks[u] = (int) coverage[u];
+
+        // If starting from some node already covers all packages, no steps are needed
+        for (int start = 0; start < n; start++) {
+            if (coverageMasks[start] == fullMask) return 0;
+        }
+
+        // Try starting from each node and perform a BFS to find the minimum number of steps to cover all packages.
+        // The starts are independent, so worker threads take them one at a time from a shared counter. Each worker
+        // reuses one search engine (and so one state table) for all its starts, and every BFS is pruned against
+        // the best answer found by any worker so far.
+        StateSpaceSearch shared = new StateSpaceSearch(graph, coverageMasks, packageIndices);
+        long tableSize = (long) n << totalPackages;
+        int workers = (int) Math.max(1, Math.min(threads, MAX_EXACT_STATES / tableSize));  // Each worker owns a state table
+        AtomicInteger best = new AtomicInteger(Integer.MAX_VALUE);
+        AtomicInteger nextStart = new AtomicInteger(0);
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int w = 0; w < workers; w++) {
+                StateSpaceSearch search = (w == 0) ? shared : new StateSpaceSearch(shared);
+                tasks.add(() -> {
+                    for (int start = nextStart.getAndIncrement(); start < n; start = nextStart.getAndIncrement()) {
+                        search.search(start, best);
+                    }
+                    return null;
+                });
+            }
+            for (Future<Void> done : executor.invokeAll(tasks)) done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while searching", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Search failed", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+        int minSteps = best.get();
+        return minSteps;  // Return the minimum number of steps found
+    }
+
+    // The strategy that solve() used to compute its answer
+    enum Strategy {
+        EXACT_STATE_SEARCH,            // The state-space BFS of minRoads, the answer is optimal
+        GREEDY_COVER_WITH_LOCAL_SEARCH // Greedy set cover, a 2-opt tour and redundant stop removal, the answer is an upper bound
+    }
+
+    // This class is the answer of solve(): the number of steps and the strategy that produced it
+    static class Solution {
+        final int steps;
+        final Strategy strategy;
+
+        Solution(int steps, Strategy strategy) {
+            this.steps = steps;
+            this.strategy = strategy;
+        }
+
+        @Override
+        public String toString() {
+            return steps + " (" + strategy + ")";
+        }
+    }
+
+    // The largest state table (n * 2^P entries) the exact search is allowed to allocate, about 256 MB of ints
+    static final long MAX_EXACT_STATES = 1L << 26;
+
+    // This function solves the same problem as minRoads for any number of packages. When the (node, mask) state table fits
+    // in MAX_EXACT_STATES, it runs the exact state-space search. Otherwise it approximates: it picks stops with greedy set
+    // cover on the package bitsets, orders them into a closed walk, and improves the walk with local search.
+    public static Solution solve(int[] packages, int[][] roads) {
+        int n = packages.length;
+        int[] packageIndex = new int[n];
+        int totalPackages = 0;
+        for (int i = 0; i < n; i++) packageIndex[i] = (packages[i] == 1) ? totalPackages++ : -1;
+        if (totalPackages <= 31 && ((long) n << totalPackages) <= MAX_EXACT_STATES) {
+            return new Solution(minRoads(packages, roads), Strategy.EXACT_STATE_SEARCH);
+        }
+
+        int words = (totalPackages + 63) >>> 6;
+        CsrGraph graph = CsrGraph.fromRoads(n, roads);
+        long[] coverage = twoStepCoverage(graph, packageIndex, words);
+        return new Solution(approximateRoads(graph, coverage, words, totalPackages), Strategy.GREEDY_COVER_WITH_LOCAL_SEARCH);
+    }
+
+    // This function approximates minRoads with package bitsets of any size.
+    // 1. Greedy set cover: repeatedly pick the node whose two-step coverage adds the most uncollected packages.
+    // 2. The chosen stops are ordered into a closed walk with nearest neighbour, then improved with 2-opt.
+    // 3. Local search: a stop is dropped when the walk without it still collects every package, counting the packages
+    //    collected by the nodes passed on the way between stops. Steps 2 and 3 repeat until no stop can be dropped.
+    // Returns the length of the walk, or Integer.MAX_VALUE if the stops are not all connected.
+    static int approximateRoads(CsrGraph graph, long[] coverage, int words, int totalPackages) {
+        if (totalPackages == 0) return 0;
+        long[] full = new long[words];
+        for (int p = 0; p < totalPackages; p++) full[p >>> 6] |= 1L << p;
+
+        // 1. Greedy set cover
+        List<Integer> stops = new ArrayList<>();
+        long[] covered = new long[words];
+        while (!Arrays.equals(covered, full)) {
+            int best = -1, bestGain = 0;
+            for (int u = 0; u < graph.n; u++) {
+                int gain = 0;
+                for (int w = 0; w < words; w++) gain += Long.bitCount(coverage[u * words + w] & ~covered[w]);
+                if (gain > bestGain) {
+                    best = u;
+                    bestGain = gain;
                 }
             }
-            coverageMasks[u] = mask;  // Store the mask for node u
+            stops.add(best);
+            for (int w = 0; w < words; w++) covered[w] |= coverage[best * words + w];
         }
+        if (stops.size() == 1) return 0;  // One stop collects everything, no road is needed
 
-        int minSteps = Integer.MAX_VALUE;
-        // Try starting from each node and perform a BFS to find the minimum number of steps to cover all packages
-        for (int start = 0; start < n; start++) {
-            int initialMask = coverageMasks[start];
-            if (initialMask == fullMask) {
-                return 0;  // If starting from this node already covers all packages, no steps are needed
+        // Steps between every pair of stops
+        int k = stops.size();
+        int[][] dist = new int[k][k];
+        int[] scratch = new int[graph.n], queue = new int[graph.n];
+        for (int i = 0; i < k; i++) {
+            hopDistances(graph, stops.get(i), scratch, queue);
+            for (int j = 0; j < k; j++) {
+                if (scratch[stops.get(j)] < 0) return Integer.MAX_VALUE;
+                dist[i][j] = scratch[stops.get(j)];
             }
+        }
 
-            // Initialize the distance array for each state (node and bitmask)
-            int[][] dist = new int[n][1 << totalPackages];
-            for (int[] row : dist) Arrays.fill(row, Integer.MAX_VALUE);
-            Queue<State> queue = new LinkedList<>();
-            queue.add(new State(start, initialMask, 0));  // Start BFS from node `start` with the initial mask
-            dist[start][initialMask] = 0;
-
-            // Perform BFS to explore all possible states (node, collected packages)
-            while (!queue.isEmpty()) {
-                State current = queue.poll();
-                if (current.node == start && current.mask == fullMask) {
-                    minSteps = Math.min(minSteps, current.steps);  // If all packages are collected, update minSteps
-                    break;
+        // 2. and 3. Tour, then drop redundant stops until none can be dropped
+        int[] tour = nearestNeighbourTour(dist);
+        while (true) {
+            twoOpt(tour, dist);
+            if (tour.length == 1) return 0;
+
+            // segments[i] holds the packages collected on the shortest path from tour[i] to the next stop
+            long[][] segments = new long[tour.length][];
+            for (int i = 0; i < tour.length; i++) {
+                segments[i] = pathCoverage(graph, stops.get(tour[i]), stops.get(tour[(i + 1) % tour.length]), coverage, words, scratch, queue);
+            }
+
+            boolean dropped = false;
+            for (int i = 0; i < tour.length && tour.length > 1; ) {
+                int prev = (i + tour.length - 1) % tour.length, next = (i + 1) % tour.length;
+                long[] bypass = pathCoverage(graph, stops.get(tour[prev]), stops.get(tour[next]), coverage, words, scratch, queue);
+                long[] rest = bypass.clone();
+                for (int s = 0; s < tour.length; s++) {
+                    if (s == prev || s == i) continue;
+                    for (int w = 0; w < words; w++) rest[w] |= segments[s][w];
+                }
+                if (Arrays.equals(rest, full)) {
+                    // Splice the stop out of the tour and replace its two segments with the bypass
+                    tour = removeAt(tour, i);
+                    segments = removeAt(segments, i);
+                    segments[(i == 0) ? tour.length - 1 : i - 1] = bypass;
+                    dropped = true;
+                } else {
+                    i++;
                 }
-                // Explore all neighbors of the current node
-                for (int neighbor : adj.get(current.node)) {
-                    int newMask = current.mask | coverageMasks[neighbor];  // Update the mask with packages collected by visiting `neighbor`
-                    int newSteps = current.steps + 1;  // Increment the number of steps
-                    if (newSteps < dist[neighbor][newMask]) {
-                        dist[neighbor][newMask] = newSteps;
-                        queue.add(new State(neighbor, newMask, newSteps));  // Add the new state to the queue
+            }
+            if (!dropped) break;
+        }
+
+        int steps = 0;
+        for (int i = 0; i < tour.length; i++) steps += dist[tour[i]][tour[(i + 1) % tour.length]];
+        return steps;
+    }
+
+    // Builds a closed tour over stops 0..k-1 by always moving to the nearest unvisited stop
+    private static int[] nearestNeighbourTour(int[][] dist) {
+        int k = dist.length;
+        int[] tour = new int[k];
+        boolean[] used = new boolean[k];
+        used[0] = true;
+        for (int i = 1; i < k; i++) {
+            int last = tour[i - 1], best = -1;
+            for (int j = 0; j < k; j++) {
+                if (!used[j] && (best < 0 || dist[last][j] < dist[last][best])) best = j;
+            }
+            tour[i] = best;
+            used[best] = true;
+        }
+        return tour;
+    }
+
+    // Improves the tour in place by reversing segments while that shortens it (2-opt)
+    private static void twoOpt(int[] tour, int[][] dist) {
+        int k = tour.length;
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int i = 0; i < k - 1; i++) {
+                for (int j = i + 2; j < k; j++) {
+                    int a = tour[i], b = tour[i + 1], c = tour[j], d = tour[(j + 1) % k];
+                    if (a == d) continue;
+                    if (dist[a][c] + dist[b][d] < dist[a][b] + dist[c][d]) {
+                        for (int l = i + 1, r = j; l < r; l++, r--) {
+                            int t = tour[l];
+                            tour[l] = tour[r];
+                            tour[r] = t;
+                        }
+                        improved = true;
                     }
                 }
             }
         }
-        return minSteps;  // Return the minimum number of steps found
+    }
+
+    // Returns the packages collected by the nodes on one shortest path from `from` to `to`, both included
+    private static long[] pathCoverage(CsrGraph graph, int from, int to, long[] coverage, int words, int[] scratch, int[] queue) {
+        hopDistances(graph, from, scratch, queue);
+        long[] collected = new long[words];
+        int node = to;
+        while (true) {
+            for (int w = 0; w < words; w++) collected[w] |= coverage[node * words + w];
+            if (node == from) return collected;
+            // Step back to any neighbour one step closer to `from`
+            for (int e = graph.offsets[node]; e < graph.offsets[node + 1]; e++) {
+                if (scratch[graph.targets[e]] == scratch[node] - 1) {
+                    node = graph.targets[e];
+                    break;
+                }
+            }
+        }
+    }
+
+    private static int[] removeAt(int[] array, int index) {
+        int[] result = new int[array.length - 1];
+        System.arraycopy(array, 0, result, 0, index);
+        System.arraycopy(array, index + 1, result, index, array.length - index - 1);
+        return result;
+    }
+
+    private static long[][] removeAt(long[][] array, int index) {
+        long[][] result = new long[array.length - 1][];
+        System.arraycopy(array, 0, result, 0, index);
+        System.arraycopy(array, index + 1, result, index, array.length - index - 1);
+        return result;
     }
 
     public static void main(String[] args) {
@@ -132,6 +502,45 @@ public class Question_4_b {
         int[] packages2 = {0, 0, 0, 1, 1, 0, 0, 1};
         int[][] roads2 = {{0, 1}, {0, 2}, {1, 3}, {1, 4}, {2, 5}, {5, 6}, {5, 7}};
         System.out.println("Test Case 2 - Expected: 2, Actual: " + minRoads(packages2, roads2));
+
+        // Test case 3: small enough for the exact search
+        System.out.println("Test Case 3 - Expected: 2 (EXACT_STATE_SEARCH), Actual: " + solve(packages1, roads1));
+
+        // Test case 4: a path of 200 locations, every one with a package, is too large for the exact search.
+        // Stops every 5 locations cover the whole path, so the walk goes to one end and back.
+        int[] packages4 = new int[200];
+        int[][] roads4 = new int[199][];
+        Arrays.fill(packages4, 1);
+        for (int i = 0; i < 199; i++) roads4[i] = new int[]{i, i + 1};
+        System.out.println("Test Case 4 - Expected: at most 392, Actual: " + solve(packages4, roads4));
+
+        // Run with "--bench" to measure how the parallel search scales with the number of threads
+        if (args.length > 0 && args[0].equals("--bench")) {
+            benchmarkParallel(400, 12);
+        }
+    }
+
+    // This function builds a random connected graph and times minRoads for 1, 2, 4, ... threads up to the number of cores
+    private static void benchmarkParallel(int n, int totalPackages) {
+        Random random = new Random(42);
+        int[] packages = new int[n];
+        for (int placed = 0; placed < totalPackages; ) {
+            int u = random.nextInt(n);
+            if (packages[u] == 0) {
+                packages[u] = 1;
+                placed++;
+            }
+        }
+        List<int[]> roads = new ArrayList<>();
+        for (int v = 1; v < n; v++) roads.add(new int[]{random.nextInt(v), v});
+        int[][] roadArray = roads.toArray(new int[0][]);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            long start = System.nanoTime();
+            int steps = minRoads(packages, roadArray, threads);
+            System.out.printf("threads=%d: %d steps in %d ms%n", threads, steps, (System.nanoTime() - start) / 1_000_000);
+        }
     }
 }
 
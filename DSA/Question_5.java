@@ -11,16 +11,51 @@
  * - Add edges with cost and bandwidth information.
  * - Calculate and display the Minimum Spanning Tree (MST).
  * - Calculate and display the Shortest Path between two selected nodes based on bandwidth.
+ *
+ * Every node gets a stable integer id when it is added, and the model keeps per-node adjacency lists, so the
+ * algorithms never scan the whole edge list to find a node's edges.
+ * Shortest paths use an indexed binary heap over node ids with a real decrease-key operation.
+ * A widest path mode finds the path with the largest bottleneck bandwidth, and a BottleneckIndex built on the maximum
+ * spanning tree answers the bottleneck bandwidth between any two nodes in O(log V).
+ * Shortest path trees are cached per source node and only invalidated when a new edge could shorten them.
+ * MST and path computations run on background threads over an immutable primitive snapshot of the graph, with a
+ * progress bar, and a new request cancels the one still running, so the window stays responsive on large graphs.
+ * A uniform grid over node positions answers clicks from the cells around them and limits painting to the visible area.
+ * Graphs can be imported from and exported to an edge-list CSV file or a compact binary file holding the snapshot
+ * arrays, which is memory-mapped on load and turned into a model in one pass.
+ * A force-directed layout with a Barnes-Hut quadtree places the nodes of imported graphs on a background thread,
+ * moving them on screen in batches, and the panel scrolls so large graphs can be explored.
+ * An MST frontier shows how the cheapest spanning tree gets more expensive as a minimum link bandwidth is required,
+ * computed in one sweep over the edges sorted by bandwidth.
+ * For failover planning, the k shortest loopless paths (Yen's algorithm) and a primary path with a link-disjoint backup
+ * (Suurballe's algorithm) can be found between two nodes.
  */
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class Question_5 extends JFrame {
     private GraphPanel graphPanel;
     private JLabel costLabel, latencyLabel;
+    private JProgressBar progressBar;
 
     /**
      * Constructor to set up the window, initialize components, and define layout.
@@ -44,29 +79,77 @@ public class Question_5 extends JFrame {
         JButton addNodeBtn = new JButton("Add Node");
         JButton addEdgeBtn = new JButton("Add Edge");
         JButton mstBtn = new JButton("Find MST (Cost)");
+        JButton frontierBtn = new JButton("MST Frontier (Cost vs Bandwidth)");
         JButton shortestPathBtn = new JButton("Find Shortest Path (Bandwidth)");
+        JButton widestPathBtn = new JButton("Find Widest Path (Bandwidth)");
+        JButton kPathsBtn = new JButton("Find " + GraphPanel.ALTERNATIVE_PATHS + " Shortest Paths");
+        JButton backupPathBtn = new JButton("Find Backup Path (Disjoint)");
+        JButton layoutBtn = new JButton("Auto Layout");
+        JButton importBtn = new JButton("Import Graph...");
+        JButton exportBtn = new JButton("Export Graph...");
 
         costLabel = new JLabel("Total Cost: 0");
         latencyLabel = new JLabel("Latency: N/A");
+        progressBar = new JProgressBar(0, 100);
+        progressBar.setStringPainted(true);
+        progressBar.setString("Idle");
 
         controlPanel.add(addNodeBtn);
         controlPanel.add(addEdgeBtn);
         controlPanel.add(mstBtn);
+        controlPanel.add(frontierBtn);
         controlPanel.add(shortestPathBtn);
+        controlPanel.add(widestPathBtn);
+        controlPanel.add(kPathsBtn);
+        controlPanel.add(backupPathBtn);
+        controlPanel.add(layoutBtn);
+        controlPanel.add(importBtn);
+        controlPanel.add(exportBtn);
         controlPanel.add(costLabel);
         controlPanel.add(latencyLabel);
+        controlPanel.add(progressBar);
 
-        add(graphPanel, BorderLayout.CENTER);
+        add(new JScrollPane(graphPanel), BorderLayout.CENTER);
         add(controlPanel, BorderLayout.EAST);
 
         // Button actions
         addNodeBtn.addActionListener(e -> graphPanel.setMode(GraphPanel.Mode.ADD_NODE));
         addEdgeBtn.addActionListener(e -> graphPanel.setMode(GraphPanel.Mode.ADD_EDGE));
-        mstBtn.addActionListener(e -> {
-            graphPanel.findMST();
-            updateStats();
-        });
+        mstBtn.addActionListener(e -> graphPanel.findMST(this::updateStats));
+        frontierBtn.addActionListener(e -> graphPanel.findMstFrontier(this::updateStats));
         shortestPathBtn.addActionListener(e -> graphPanel.startShortestPathSelection());
+        widestPathBtn.addActionListener(e -> graphPanel.startWidestPathSelection());
+        kPathsBtn.addActionListener(e -> graphPanel.startKShortestPathsSelection());
+        backupPathBtn.addActionListener(e -> graphPanel.startBackupPathSelection());
+        layoutBtn.addActionListener(e -> graphPanel.toggleLayout());
+        importBtn.addActionListener(e -> {
+            JFileChooser chooser = new JFileChooser();
+            if (chooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+                graphPanel.importGraph(chooser.getSelectedFile().toPath(), this::updateStats);
+            }
+        });
+        exportBtn.addActionListener(e -> {
+            JFileChooser chooser = new JFileChooser();
+            if (chooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
+                graphPanel.exportGraph(chooser.getSelectedFile().toPath());
+            }
+        });
+        graphPanel.setPathListener(latencyLabel::setText);
+        graphPanel.setProgressListener(new GraphComputeService.ProgressListener() {
+            public void progress(String task, int percent) {
+                progressBar.setValue(percent);
+                progressBar.setString(task + " " + percent + "%");
+            }
+            public void finished(String task) {
+                progressBar.setValue(100);
+                progressBar.setString(task + " done");
+            }
+            public void failed(String task, Throwable error) {
+                progressBar.setValue(0);
+                progressBar.setString(task + " failed");
+                JOptionPane.showMessageDialog(Question_5.this, task + " failed: " + error);
+            }
+        });
     }
 
     /**
@@ -80,9 +163,13 @@ public class Question_5 extends JFrame {
 
     /**
      * Main method to run the application.
-     * It initializes the frame and makes the application visible.
+     * It initializes the frame and makes the application visible, or runs the benchmarks when given `--bench`.
      */
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--bench")) {
+            ShortestPathBenchmark.run();  // Headless comparison of the shortest path heaps
+            return;
+        }
         SwingUtilities.invokeLater(() -> new Question_5().setVisible(true));
     }
 }
@@ -91,12 +178,24 @@ public class Question_5 extends JFrame {
  * GraphPanel is a custom JPanel class that handles the graphical representation of nodes and edges.
  * It provides interaction functionalities such as adding nodes, adding edges, selecting paths, and visualizing MST and shortest paths.
  */
-class GraphPanel extends JPanel {
-    enum Mode { ADD_NODE, ADD_EDGE, SELECT_PATH }
+class GraphPanel extends JPanel implements Scrollable {
+    enum Mode { ADD_NODE, ADD_EDGE, SELECT_PATH, SELECT_WIDEST_PATH, SELECT_K_PATHS, SELECT_BACKUP_PATH }
+    static final int ALTERNATIVE_PATHS = 10;                  // Number of paths the k shortest paths mode offers
+    private static final int CANVAS_MARGIN = 30;              // Free space around the nodes of a laid out graph
+    private static final long MIN_FRAME_NANOS = 100_000_000;  // At most ten layout frames per second
     private Mode currentMode = Mode.ADD_NODE;
     private GraphModel graphModel = new GraphModel();
     private GraphModel.GraphNode selectedNode;
     private GraphModel.GraphNode pathStartNode;
+    private Consumer<String> pathListener = text -> { };
+    private final GraphComputeService computeService = new GraphComputeService();
+    private GraphComputeService.ProgressListener progressListener;
+    private ThresholdMst thresholdMst;  // Last MST frontier, reused while the graph has not changed
+    private Dimension canvasSize = new Dimension();  // Extent of the nodes, so the scroll pane can reach all of them
+    private final AtomicLong layoutGeneration = new AtomicLong();  // Number of the running layout; others stop
+    private boolean layoutRunning;
+    private volatile boolean framePending;       // A layout frame waits on the event dispatch thread
+    private volatile long lastFrameApplyNanos;   // Time the event dispatch thread took to apply the last frame
 
     /**
      * Constructor to initialize the GraphPanel and set up mouse event listeners.
@@ -120,6 +219,7 @@ class GraphPanel extends JPanel {
         switch (currentMode) {
             case ADD_NODE:
                 graphModel.addNode(new GraphModel.GraphNode(x, y));
+                updateCanvasSize();
                 repaint();
                 break;
             case ADD_EDGE:
@@ -143,14 +243,19 @@ class GraphPanel extends JPanel {
                 }
                 break;
             case SELECT_PATH:
+            case SELECT_WIDEST_PATH:
+            case SELECT_K_PATHS:
+            case SELECT_BACKUP_PATH:
                 GraphModel.GraphNode clicked = graphModel.getNodeAt(x, y);
                 if (clicked != null) {
                     if (pathStartNode == null) {
                         pathStartNode = clicked;
                     } else {
-                        graphModel.computeShortestPath(pathStartNode, clicked);
+                        if (currentMode == Mode.SELECT_PATH) findShortestPath(pathStartNode, clicked);
+                        else if (currentMode == Mode.SELECT_WIDEST_PATH) findWidestPath(pathStartNode, clicked);
+                        else if (currentMode == Mode.SELECT_K_PATHS) findKShortestPaths(pathStartNode, clicked);
+                        else findBackupPaths(pathStartNode, clicked);
                         pathStartNode = null;
-                        repaint();
                     }
                 }
                 break;
@@ -166,14 +271,344 @@ class GraphPanel extends JPanel {
     }
 
     /**
-     * Finds the Minimum Spanning Tree (MST) for the graph by calling the `computeMST` method of `GraphModel`.
-     * The edges selected in the MST are highlighted in red.
+     * Starts the widest path selection mode. The two selected nodes are joined by the path whose narrowest link
+     * has the largest bandwidth.
+     */
+    public void startWidestPathSelection() {
+        setMode(Mode.SELECT_WIDEST_PATH);
+        pathStartNode = null;
+    }
+
+    /**
+     * Starts the k shortest paths selection mode. The ALTERNATIVE_PATHS shortest loopless paths between the two
+     * selected nodes are listed, and the chosen one is highlighted.
+     */
+    public void startKShortestPathsSelection() {
+        setMode(Mode.SELECT_K_PATHS);
+        pathStartNode = null;
+    }
+
+    /**
+     * Starts the backup path selection mode. The two selected nodes are joined by a primary and a backup path that
+     * share no link, with the smallest total latency.
+     */
+    public void startBackupPathSelection() {
+        setMode(Mode.SELECT_BACKUP_PATH);
+        pathStartNode = null;
+    }
+
+    /**
+     * Sets the callback that receives a one-line summary (latency or bandwidth) of every computed path.
+     */
+    public void setPathListener(Consumer<String> listener) { pathListener = listener; }
+
+    /**
+     * Sets the listener that shows the progress of background computations.
+     */
+    public void setProgressListener(GraphComputeService.ProgressListener listener) {
+        progressListener = listener;
+        computeService.setProgressListener(listener);
+    }
+
+    /**
+     * Finds the Minimum Spanning Tree (MST) for the graph on a background thread, from a snapshot of the model.
+     * When it is done, the edges selected in the MST are highlighted in red and `onDone` is called.
+     */
+    public void findMST(Runnable onDone) {
+        GraphSnapshot snapshot = graphModel.snapshot();
+        computeService.submit("MST", snapshot::minimumSpanningTree, edgeIds -> {
+            graphModel.applyMst(edgeIds);
+            repaint();
+            onDone.run();
+        });
+    }
+
+    /**
+     * Computes the Pareto frontier of spanning tree cost against minimum link bandwidth on a background thread (or
+     * reuses the last one if the graph has not changed) and lets the user pick a point of it; the cheapest tree for
+     * that bandwidth is then highlighted as the MST and `onDone` is called.
+     */
+    public void findMstFrontier(Runnable onDone) {
+        GraphSnapshot snapshot = graphModel.snapshot();
+        if (thresholdMst != null && thresholdMst.version == snapshot.version) {
+            chooseMstThreshold(thresholdMst, onDone);
+            return;
+        }
+        computeService.submit("MST frontier", progress -> new ThresholdMst(snapshot, progress), result -> {
+            thresholdMst = result;
+            chooseMstThreshold(result, onDone);
+        });
+    }
+
+    private void chooseMstThreshold(ThresholdMst result, Runnable onDone) {
+        long[][] frontier = result.frontier();
+        if (frontier.length == 0) {
+            JOptionPane.showMessageDialog(this, "The graph has no links to build a spanning tree from.");
+            return;
+        }
+        String[] choices = new String[frontier.length];
+        for (int i = 0; i < frontier.length; i++) {
+            choices[i] = "Bandwidth >= " + frontier[i][0] + ": total cost " + frontier[i][1];
+        }
+        Object choice = JOptionPane.showInputDialog(this,
+                "Cheapest spanning tree for each minimum link bandwidth.\n"
+                        + "Any bandwidth between two rows costs as much as the row above it.",
+                "MST Frontier", JOptionPane.PLAIN_MESSAGE, null, choices, choices[choices.length - 1]);
+        if (choice == null) return;
+        int index = Arrays.asList(choices).indexOf(choice);
+        graphModel.applyMst(result.treeAt((int) frontier[index][0]));
+        repaint();
+        onDone.run();
+    }
+
+    /**
+     * Shows the shortest path between two nodes. A cached shortest path tree answers at once; otherwise the tree
+     * is computed on a background thread and cached when it arrives (unless the graph changed in the meantime).
      */
-    public void findMST() {
-        graphModel.computeMST();
+    private void findShortestPath(GraphModel.GraphNode start, GraphModel.GraphNode end) {
+        GraphSnapshot.PathTree cached = graphModel.cachedShortestPathTree(start);
+        if (cached != null) {
+            computeService.cancel();  // The click supersedes whatever was still running
+            showShortestPath(cached, end);
+            return;
+        }
+        GraphSnapshot snapshot = graphModel.snapshot();
+        computeService.submit("Shortest path", progress -> snapshot.shortestPathTree(start.id, progress), tree -> {
+            graphModel.cacheShortestPathTree(tree);
+            showShortestPath(tree, end);
+        });
+    }
+
+    private void showShortestPath(GraphSnapshot.PathTree tree, GraphModel.GraphNode end) {
+        long latency = graphModel.showPath(tree, end);
+        pathListener.accept(latency < 0 ? "Latency: unreachable" : "Latency: " + latency);
         repaint();
     }
 
+    /**
+     * Shows the widest path between two nodes, computed on a background thread.
+     */
+    private void findWidestPath(GraphModel.GraphNode start, GraphModel.GraphNode end) {
+        GraphSnapshot snapshot = graphModel.snapshot();
+        BottleneckIndex cached = graphModel.cachedBottleneckIndex();
+        computeService.submit("Widest path", progress -> {
+            GraphSnapshot.PathTree tree = snapshot.widestPathTree(start.id, end.id, progress);
+            return new WidestPath(tree, cached != null ? cached : new BottleneckIndex(snapshot));
+        }, result -> {
+            graphModel.cacheBottleneckIndex(result.index);
+            graphModel.showPath(result.tree, end);
+            // The index answers the bandwidth of any pair in O(log V); it must agree with the path just found
+            int width = result.index.query(start.id, end.id);
+            if (start == end) pathListener.accept("Bandwidth: unlimited (same node)");  // The index reports Integer.MAX_VALUE
+            else pathListener.accept(width < 0 ? "Bandwidth: unreachable" : "Bandwidth: " + width);
+            repaint();
+        });
+    }
+
+    /**
+     * The widest path tree of one search and the all-pairs bottleneck index of the same snapshot.
+     */
+    private static final class WidestPath {
+        final GraphSnapshot.PathTree tree;
+        final BottleneckIndex index;
+
+        WidestPath(GraphSnapshot.PathTree tree, BottleneckIndex index) {
+            this.tree = tree;
+            this.index = index;
+        }
+    }
+
+    /**
+     * Loads a graph file (CSV or binary) on a background thread and replaces the model with it when it arrives.
+     */
+    public void importGraph(Path path, Runnable onDone) {
+        computeService.submit("Import", progress -> {
+            try {
+                return GraphFiles.read(path, progress);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, data -> {
+            stopLayout();
+            graphModel.load(data);
+            updateCanvasSize();
+            selectedNode = null;
+            pathStartNode = null;
+            pathListener.accept("Latency: N/A");
+            repaint();
+            onDone.run();
+        });
+    }
+
+    /**
+     * Writes the current graph to a file on a background thread: CSV if the name ends in `.csv`, binary otherwise.
+     */
+    public void exportGraph(Path path) {
+        GraphFiles.GraphData data = graphModel.toData();
+        computeService.submit("Export", progress -> {
+            try {
+                GraphFiles.write(path, data);
+                return path;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, written -> { });
+    }
+
+    /**
+     * Starts the force-directed layout, or stops it if it is running.
+     */
+    public void toggleLayout() {
+        if (layoutRunning) stopLayout();
+        else startLayout();
+    }
+
+    /**
+     * Runs a ForceLayout from the current node positions on its own background thread. Every few steps the positions
+     * are sent to the event dispatch thread as one frame, which moves all nodes at once and repaints. A new frame is
+     * only sent once the previous one was applied, and frames are spaced by at least four times the time the last one
+     * took to apply, so on large graphs the event dispatch thread stays free for input most of the time.
+     * Nodes added while the layout runs keep their position; adding edges does not affect the running layout.
+     */
+    public void startLayout() {
+        stopLayout();
+        GraphSnapshot snapshot = graphModel.snapshot();
+        double[] x = new double[snapshot.nodeCount], y = new double[snapshot.nodeCount];
+        graphModel.copyPositions(x, y);
+        ForceLayout layout = new ForceLayout(snapshot, x, y);
+        long number = layoutGeneration.incrementAndGet();
+        layoutRunning = true;
+        framePending = false;
+        Thread thread = new Thread(() -> {
+            long lastFrame = System.nanoTime();
+            while (!layout.isDone() && layoutGeneration.get() == number) {
+                layout.step();
+                long now = System.nanoTime();
+                if (!framePending && now - lastFrame >= Math.max(MIN_FRAME_NANOS, 4 * lastFrameApplyNanos)) {
+                    publishFrame(number, x, y, layout.progress(), false);
+                    lastFrame = now;
+                }
+            }
+            while (framePending && layoutGeneration.get() == number) LockSupport.parkNanos(1_000_000);
+            if (layoutGeneration.get() == number) publishFrame(number, x, y, 1, true);
+        }, "graph-layout");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the running layout, if any. Nodes stay where the last applied frame put them.
+     */
+    public void stopLayout() {
+        layoutGeneration.incrementAndGet();
+        layoutRunning = false;
+    }
+
+    // Rounds the positions, shifts them so all nodes lie at least CANVAS_MARGIN from the top left corner, and has the
+    // event dispatch thread apply them, unless the layout was stopped in the meantime
+    private void publishFrame(long number, double[] x, double[] y, double progress, boolean last) {
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+        for (int i = 0; i < x.length; i++) {
+            minX = Math.min(minX, x[i]);
+            minY = Math.min(minY, y[i]);
+        }
+        int[] frameX = new int[x.length], frameY = new int[y.length];
+        for (int i = 0; i < x.length; i++) {
+            frameX[i] = (int) Math.round(x[i] - minX) + CANVAS_MARGIN;
+            frameY[i] = (int) Math.round(y[i] - minY) + CANVAS_MARGIN;
+        }
+        framePending = true;
+        SwingUtilities.invokeLater(() -> {
+            if (layoutGeneration.get() == number) {
+                long start = System.nanoTime();
+                graphModel.moveNodes(frameX, frameY);
+                updateCanvasSize();
+                repaint();
+                lastFrameApplyNanos = System.nanoTime() - start;
+                if (last) {
+                    layoutRunning = false;
+                    if (progressListener != null) progressListener.finished("Layout");
+                } else if (progressListener != null) {
+                    progressListener.progress("Layout", (int) (progress * 100));
+                }
+            }
+            framePending = false;
+        });
+    }
+
+    // Grows or shrinks the panel to the extent of the nodes, so the scroll pane around it can show every node
+    private void updateCanvasSize() {
+        Rectangle bounds = graphModel.bounds();
+        Dimension size = new Dimension(bounds.x + bounds.width + CANVAS_MARGIN, bounds.y + bounds.height + CANVAS_MARGIN);
+        if (!size.equals(canvasSize)) {
+            canvasSize = size;
+            revalidate();
+        }
+    }
+
+    @Override
+    public Dimension getPreferredSize() { return new Dimension(canvasSize); }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() { return getPreferredSize(); }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visible, int orientation, int direction) { return SpatialGrid.CELL / 4; }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visible, int orientation, int direction) {
+        return orientation == SwingConstants.HORIZONTAL ? visible.width : visible.height;
+    }
+
+    // Fill the viewport when the graph is smaller than it, so clicks anywhere in the window add nodes
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return getParent() instanceof JViewport && getParent().getWidth() > canvasSize.width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return getParent() instanceof JViewport && getParent().getHeight() > canvasSize.height;
+    }
+
+    /**
+     * Computes the k shortest paths between two nodes on a background thread, then lets the user pick one to highlight.
+     */
+    private void findKShortestPaths(GraphModel.GraphNode start, GraphModel.GraphNode end) {
+        GraphSnapshot snapshot = graphModel.snapshot();
+        computeService.submit("K shortest paths", progress -> ResiliencePaths.kShortest(snapshot, start.id, end.id, ALTERNATIVE_PATHS, progress), routes -> {
+            if (routes.isEmpty()) {
+                graphModel.showRoutes(null, null);
+                pathListener.accept("Latency: unreachable");
+                repaint();
+                return;
+            }
+            String[] choices = new String[routes.size()];
+            for (int i = 0; i < routes.size(); i++) {
+                choices[i] = "Path " + (i + 1) + ": latency " + routes.get(i).latency + ", " + routes.get(i).edges.length + " links";
+            }
+            Object choice = JOptionPane.showInputDialog(this, "Shortest loopless paths by latency:", "K Shortest Paths",
+                    JOptionPane.PLAIN_MESSAGE, null, choices, choices[0]);
+            if (choice == null) return;
+            ResiliencePaths.Route route = routes.get(Arrays.asList(choices).indexOf(choice));
+            graphModel.showRoutes(route, null);
+            pathListener.accept("Latency: " + route.latency);
+            repaint();
+        });
+    }
+
+    /**
+     * Computes a primary and an edge-disjoint backup path between two nodes on a background thread and highlights both.
+     */
+    private void findBackupPaths(GraphModel.GraphNode start, GraphModel.GraphNode end) {
+        GraphSnapshot snapshot = graphModel.snapshot();
+        computeService.submit("Backup path", progress -> ResiliencePaths.disjointPair(snapshot, start.id, end.id, progress), pair -> {
+            graphModel.showRoutes(pair == null ? null : pair[0], pair == null ? null : pair[1]);
+            pathListener.accept(pair == null ? "Latency: no disjoint backup" : "Latency: " + pair[0].latency + ", backup " + pair[1].latency);
+            repaint();
+        });
+    }
+
     /**
      * Returns the GraphModel object associated with this panel.
      * This allows access to the model for operations such as calculating MST and shortest paths.
@@ -203,11 +638,19 @@ class GraphPanel extends JPanel {
 class GraphModel {
     private List<GraphNode> nodes = new ArrayList<>();
     private List<GraphEdge> edges = new ArrayList<>();
+    private List<List<GraphEdge>> adjacency = new ArrayList<>();  // adjacency.get(node.id) holds the edges touching that node
+    private BottleneckIndex bottleneckIndex;                        // Built on first use, dropped when the graph changes
+    private ShortestPathCache pathCache = new ShortestPathCache(64L << 20);  // Shortest path trees by source, up to 64 MB
     private List<GraphEdge> mstEdges = new ArrayList<>();
     private List<GraphEdge> shortestPath = new ArrayList<>();
+    private List<GraphEdge> backupPath = new ArrayList<>();
+    private long version;            // Incremented on every change, so snapshots and cached trees can tell they are stale
+    private GraphSnapshot snapshot;  // Primitive copy of the current version, built on demand
+    private SpatialGrid grid = new SpatialGrid();  // Node and edge positions, for clicks and painting
 
     static class GraphNode {
         public int x, y;
+        int id = -1;  // Position in the model's node list, assigned by addNode and never changed
         public GraphNode(int x, int y) {
             this.x = x;
             this.y = y;
@@ -222,6 +665,7 @@ class GraphModel {
     static class GraphEdge {
         public GraphNode from, to;
         public int cost, bandwidth;
+        int id = -1;  // Position in the model's edge list, assigned by addEdge and never changed
         
         public GraphEdge(GraphNode from, GraphNode to, int cost, int bandwidth) {
             this.from = from;
@@ -238,125 +682,262 @@ class GraphModel {
     }
 
     /**
-     * Adds a node to the graph model.
+     * Adds a node to the graph model and gives it the next free id.
      */
     public void addNode(GraphNode node) { 
+        node.id = nodes.size();
         nodes.add(node); 
+        adjacency.add(new ArrayList<>());
+        grid.addNode(node);
+        bottleneckIndex = null;
+        version++;
     }
 
     /**
      * Adds an edge between two nodes with specified cost and bandwidth to the graph model.
+     * The edge is also registered in the adjacency lists of both nodes.
      */
     public void addEdge(GraphNode from, GraphNode to, int cost, int bandwidth) {
-        edges.add(new GraphEdge(from, to, cost, bandwidth));
+        GraphEdge edge = new GraphEdge(from, to, cost, bandwidth);
+        edge.id = edges.size();
+        edges.add(edge);
+        adjacency.get(from.id).add(edge);
+        if (to != from) adjacency.get(to.id).add(edge);
+        grid.addEdge(edge);
+        bottleneckIndex = null;
+        pathCache.edgeAdded(edge);
+        version++;
     }
 
     /**
-     * Returns the node located at the specified (x, y) coordinates. It checks proximity to determine which node is clicked.
+     * Returns an immutable primitive copy of the graph as it is now. The copy is reused until the graph changes,
+     * and it can safely be read by background threads while the model keeps changing on the event dispatch thread.
      */
-    public GraphNode getNodeAt(int x, int y) {
+    public GraphSnapshot snapshot() {
+        if (snapshot == null || snapshot.version != version) snapshot = new GraphSnapshot(version, nodes.size(), edges, adjacency);
+        return snapshot;
+    }
+
+    /**
+     * Replaces the whole graph with the contents of a graph file in one pass: the lists are presized, every adjacency
+     * list gets its final size up front, the file's arrays become the snapshot as they are, and the grid is built once.
+     */
+    public void load(GraphFiles.GraphData data) {
+        int n = data.nodeCount(), m = data.edgeCount();
+        nodes = new ArrayList<>(n);
+        adjacency = new ArrayList<>(n);
+        for (int u = 0; u < n; u++) {
+            GraphNode node = new GraphNode(data.x[u], data.y[u]);
+            node.id = u;
+            nodes.add(node);
+            adjacency.add(new ArrayList<>(data.offsets[u + 1] - data.offsets[u]));
+        }
+        edges = new ArrayList<>(m);
+        for (int e = 0; e < m; e++) {
+            GraphEdge edge = new GraphEdge(nodes.get(data.from[e]), nodes.get(data.to[e]), data.cost[e], data.bandwidth[e]);
+            edge.id = e;
+            edges.add(edge);
+        }
+        for (int u = 0; u < n; u++) {
+            List<GraphEdge> list = adjacency.get(u);
+            for (int i = data.offsets[u]; i < data.offsets[u + 1]; i++) list.add(edges.get(data.incident[i]));
+        }
+        bottleneckIndex = null;
+        pathCache.clear();
+        mstEdges.clear();
+        shortestPath.clear();
+        backupPath.clear();
+        version++;
+        snapshot = new GraphSnapshot(version, n, data.from, data.to, data.cost, data.bandwidth, data.offsets, data.incident);
+        grid.rebuild(nodes, edges);
+    }
+
+    /**
+     * Returns the graph as it is now in the form written to graph files: node positions plus the snapshot arrays.
+     */
+    public GraphFiles.GraphData toData() {
+        GraphSnapshot current = snapshot();
+        int[] x = new int[nodes.size()], y = new int[nodes.size()];
         for (GraphNode node : nodes) {
-            if (Math.hypot(node.x - x, node.y - y) < 15) {
-                return node;
-            }
+            x[node.id] = node.x;
+            y[node.id] = node.y;
         }
-        return null;
+        return new GraphFiles.GraphData(x, y, current.from, current.to, current.cost, current.bandwidth, current.offsets, current.incident);
     }
 
     /**
-     * Computes the Minimum Spanning Tree (MST) using Kruskal's algorithm. It sorts the edges by cost and uses Disjoint Set Union (DSU) to find the MST.
+     * Returns the node located at the specified (x, y) coordinates. It checks proximity to determine which node is clicked,
+     * looking only at the grid cells around the click.
      */
-    public void computeMST() {
-        mstEdges.clear();
-        List<GraphEdge> sortedEdges = new ArrayList<>(edges);
-        sortedEdges.sort(Comparator.comparingInt(e -> e.cost));
-        DisjointSetUnion dsu = new DisjointSetUnion(nodes.size());
+    public GraphNode getNodeAt(int x, int y) {
+        return grid.nodeAt(x, y, 15);
+    }
 
-        for (GraphEdge edge : sortedEdges) {
-            int u = nodes.indexOf(edge.from);
-            int v = nodes.indexOf(edge.to);
-            if (dsu.find(u) != dsu.find(v)) {
-                mstEdges.add(edge);
-                dsu.union(u, v);
-            }
+    /**
+     * Re-indexes node positions after nodes were moved by changing their x and y directly.
+     */
+    public void nodesMoved() {
+        grid.rebuild(nodes, edges);
+    }
+
+    /**
+     * Copies the position of every node into the arrays, which are indexed by node id.
+     */
+    public void copyPositions(double[] x, double[] y) {
+        for (GraphNode node : nodes) {
+            x[node.id] = node.x;
+            y[node.id] = node.y;
         }
     }
 
     /**
-     * Computes the shortest path from the start node to the end node based on bandwidth.
-     * This uses Dijkstra’s algorithm with bandwidth as the inverse weight.
+     * Moves the nodes with ids below the length of the arrays to the given positions in one batch, then re-indexes them.
      */
-    public void computeShortestPath(GraphNode start, GraphNode end) {
-        Map<GraphNode, Integer> dist = new HashMap<>();
-        Map<GraphNode, GraphNode> prev = new HashMap<>();
-        PriorityQueue<GraphNode> queue = new PriorityQueue<>( 
-            Comparator.comparingInt(n -> dist.getOrDefault(n, Integer.MAX_VALUE))
-        );
+    public void moveNodes(int[] x, int[] y) {
+        for (int id = 0; id < Math.min(x.length, nodes.size()); id++) {
+            nodes.get(id).x = x[id];
+            nodes.get(id).y = y[id];
+        }
+        nodesMoved();
+    }
 
+    /**
+     * Returns the bounding box of all node centres, or an empty rectangle at the origin if there are no nodes.
+     */
+    public Rectangle bounds() {
+        if (nodes.isEmpty()) return new Rectangle();
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
         for (GraphNode node : nodes) {
-            dist.put(node, Integer.MAX_VALUE);
-            prev.put(node, null);
+            minX = Math.min(minX, node.x);
+            minY = Math.min(minY, node.y);
+            maxX = Math.max(maxX, node.x);
+            maxY = Math.max(maxY, node.y);
         }
-        dist.put(start, 0);
-        queue.add(start);
+        return new Rectangle(minX, minY, maxX - minX, maxY - minY);
+    }
 
-        while (!queue.isEmpty()) {
-            GraphNode u = queue.poll();
-            if (u == end) break;
-
-            for (GraphEdge edge : getAdjacentEdges(u)) {
-                GraphNode v = (edge.from == u) ? edge.to : edge.from;
-                int weight = 1000 / edge.bandwidth;
-                int alt = dist.get(u) + weight;
-                
-                if (alt < dist.get(v)) {
-                    dist.put(v, alt);
-                    prev.put(v, u);
-                    if (!queue.contains(v)) {
-                        queue.add(v);
-                    }
-                }
-            }
+    /**
+     * Computes the Minimum Spanning Tree (MST) using Kruskal's algorithm on the current snapshot of the graph.
+     */
+    public void computeMST() {
+        applyMst(snapshot().minimumSpanningTree(GraphSnapshot.NO_PROGRESS));
+    }
+
+    /**
+     * Computes the cheapest spanning tree that only uses links with at least the given bandwidth and highlights it as
+     * the MST. Returns false, and leaves the MST unchanged, if those links do not connect the graph as all links do.
+     */
+    public boolean computeMST(int minBandwidth) {
+        int[] tree = new ThresholdMst(snapshot(), GraphSnapshot.NO_PROGRESS).treeAt(minBandwidth);
+        if (tree == null) return false;
+        applyMst(tree);
+        return true;
+    }
+
+    /**
+     * Highlights the given edges (ids from a snapshot) as the MST.
+     */
+    public void applyMst(int[] edgeIds) {
+        mstEdges.clear();
+        for (int id : edgeIds) mstEdges.add(edges.get(id));
+    }
+
+    /**
+     * Computes the shortest path from the start node to the end node based on bandwidth.
+     * The whole shortest path tree of the start node is computed once and kept in the path cache, so further
+     * queries from the same start only walk the tree back from the end, in O(path length).
+     * Returns the latency of the path, or -1 if the end cannot be reached.
+     */
+    public long computeShortestPath(GraphNode start, GraphNode end) {
+        GraphSnapshot.PathTree tree = cachedShortestPathTree(start);
+        if (tree == null) {
+            tree = snapshot().shortestPathTree(start.id, GraphSnapshot.NO_PROGRESS);
+            cacheShortestPathTree(tree);
         }
+        return showPath(tree, end);
+    }
+
+    /**
+     * Returns the cached shortest path tree of the start node, or null if it has to be computed.
+     */
+    public GraphSnapshot.PathTree cachedShortestPathTree(GraphNode start) {
+        return pathCache.get(start.id);
+    }
+
+    /**
+     * Caches a shortest path tree, unless the graph changed since the snapshot it was computed from.
+     */
+    public void cacheShortestPathTree(GraphSnapshot.PathTree tree) {
+        if (tree.version == version) pathCache.put(tree);
+    }
+
+    /**
+     * Computes the widest path from the start node to the end node: the path whose narrowest link has the largest
+     * bandwidth. The path is stored as the highlighted path. Returns its bottleneck bandwidth, or -1 if the end
+     * cannot be reached.
+     */
+    public int computeWidestPath(GraphNode start, GraphNode end) {
+        long width = showPath(snapshot().widestPathTree(start.id, end.id, GraphSnapshot.NO_PROGRESS), end);
+        return (int) Math.min(width, Integer.MAX_VALUE);  // From a node to itself the width is unbounded
+    }
 
+    /**
+     * Highlights the path of the tree from its source to the end node and returns the tree's value at the end
+     * (latency or width), or -1 and an empty path if the end is not reachable in the tree.
+     */
+    public long showPath(GraphSnapshot.PathTree tree, GraphNode end) {
         shortestPath.clear();
-        GraphNode current = end;
-        while (prev.get(current) != null) {
-            GraphNode predecessor = prev.get(current);
-            GraphEdge edge = getEdgeBetween(predecessor, current);
-            if (edge != null) {
-                shortestPath.add(edge);
-                current = predecessor;
-            } else {
-                break;
-            }
+        backupPath.clear();
+        long value = tree.valueAt(end.id);
+        if (value < 0) return -1;
+        for (int node = end.id; node != tree.source; ) {
+            GraphEdge edge = edges.get(tree.prevEdge[node]);
+            shortestPath.add(edge);
+            node = (edge.from.id == node) ? edge.to.id : edge.from.id;
         }
         Collections.reverse(shortestPath);
+        return value;
     }
 
     /**
-     * Returns the list of edges adjacent to a specific node.
+     * Returns up to k shortest loopless paths from the start node to the end node, by latency (Yen's algorithm).
      */
-    private List<GraphEdge> getAdjacentEdges(GraphNode node) {
-        List<GraphEdge> adjacent = new ArrayList<>();
-        for (GraphEdge edge : edges) {
-            if (edge.from == node || edge.to == node) {
-                adjacent.add(edge);
-            }
-        }
-        return adjacent;
+    public List<ResiliencePaths.Route> computeKShortestPaths(GraphNode start, GraphNode end, int k) {
+        return ResiliencePaths.kShortest(snapshot(), start.id, end.id, k, GraphSnapshot.NO_PROGRESS);
     }
 
     /**
-     * Returns the edge between two nodes, if it exists.
+     * Computes a primary path and a backup path from the start node to the end node that share no edge, with the
+     * smallest total latency (Suurballe's algorithm), and highlights both. Returns {primary, backup}, or null.
      */
-    private GraphEdge getEdgeBetween(GraphNode a, GraphNode b) {
-        for (GraphEdge edge : edges) {
-            if ((edge.from == a && edge.to == b) || (edge.from == b && edge.to == a)) {
-                return edge;
-            }
-        }
-        return null;
+    public ResiliencePaths.Route[] computeBackupPaths(GraphNode start, GraphNode end) {
+        ResiliencePaths.Route[] pair = ResiliencePaths.disjointPair(snapshot(), start.id, end.id, GraphSnapshot.NO_PROGRESS);
+        showRoutes(pair == null ? null : pair[0], pair == null ? null : pair[1]);
+        return pair;
+    }
+
+    /**
+     * Highlights a route as the path and another one as its backup; either may be null.
+     */
+    public void showRoutes(ResiliencePaths.Route primary, ResiliencePaths.Route backup) {
+        shortestPath.clear();
+        backupPath.clear();
+        if (primary != null) for (int id : primary.edges) shortestPath.add(edges.get(id));
+        if (backup != null) for (int id : backup.edges) backupPath.add(edges.get(id));
+    }
+
+    /**
+     * Returns the BottleneckIndex of the current graph, or null if none was built since the last change.
+     */
+    public BottleneckIndex cachedBottleneckIndex() {
+        return (bottleneckIndex != null && bottleneckIndex.version == version) ? bottleneckIndex : null;
+    }
+
+    /**
+     * Keeps an index built on a background thread, unless the graph has changed since its snapshot was taken.
+     */
+    public void cacheBottleneckIndex(BottleneckIndex index) {
+        if (index.version == version) bottleneckIndex = index;
     }
 
     /**
@@ -368,14 +949,19 @@ class GraphModel {
 
     /**
      * Draws all nodes and edges on the graph. The edges are drawn in different colors for MST and shortest paths.
+     * Only the nodes and edges that overlap the clip rectangle are drawn.
      */
     public void draw(Graphics g) {
-        for (GraphEdge edge : edges) edge.draw(g, false);
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) clip = new Rectangle(-(1 << 29), -(1 << 29), 1 << 30, 1 << 30);  // Unclipped: everything
+        grid.forEachVisibleEdge(clip, edge -> edge.draw(g, false));
         g.setColor(Color.RED);
-        for (GraphEdge edge : mstEdges) edge.draw(g, true);
+        for (GraphEdge edge : mstEdges) if (SpatialGrid.isVisible(edge, clip)) edge.draw(g, true);
+        g.setColor(Color.ORANGE);
+        for (GraphEdge edge : backupPath) if (SpatialGrid.isVisible(edge, clip)) edge.draw(g, true);
         g.setColor(Color.GREEN);
-        for (GraphEdge edge : shortestPath) edge.draw(g, true);
-        for (GraphNode node : nodes) node.draw(g);
+        for (GraphEdge edge : shortestPath) if (SpatialGrid.isVisible(edge, clip)) edge.draw(g, true);
+        grid.forEachVisibleNode(clip, node -> node.draw(g));
     }
 
     /**
@@ -389,10 +975,1933 @@ class GraphModel {
             Arrays.setAll(parent, i -> i); 
         }
         public int find(int x) { 
-            return parent[x] == x ? x : (parent[x] = find(parent[x])); 
+            while (parent[x] != x) {
+                parent[x] = parent[parent[x]];  // Path halving, iterative so long chains cannot overflow the stack
+                x = parent[x];
+            }
+            return x;
         }
         public void union(int x, int y) { 
             parent[find(x)] = find(y); 
         }
     }
 }
+
+/**
+ * ThresholdMst answers "minimum cost spanning tree using only links with bandwidth >= B" for every B at once.
+ * The edges are sorted once by decreasing bandwidth and added one by one, which sweeps B from high to low while a
+ * minimum spanning forest of the edges seen so far is kept up to date:
+ * - an edge between two trees joins them;
+ * - an edge inside a tree closes a cycle, and replaces the most expensive edge on that cycle if it is cheaper.
+ * The forest is stored in a link-cut tree, which finds the most expensive edge on a tree path, links and cuts in
+ * O(log V) amortized time, so the whole sweep takes O(E log E) instead of one Kruskal run per threshold.
+ * After the last edge of each bandwidth level the cost and size of the forest are recorded, together with the length
+ * of the log of links and cuts so far; the tree for a threshold is rebuilt by replaying the log up to that point.
+ * A threshold is feasible when its forest connects everything the whole graph connects. Its Pareto frontier is the
+ * list of feasible thresholds where lowering B lowers the cost, from the largest feasible B down to the plain MST.
+ */
+final class ThresholdMst {
+    private static final int CHECK_EVERY = 4096;  // Edges between two progress reports and cancellation checks
+
+    final long version;  // Version of the snapshot the sweep ran on
+    private final int edgeCount;
+    private final int[] levelBandwidth;  // Distinct bandwidths, decreasing
+    private final long[] levelCost;      // Cost of the forest once every edge with at least that bandwidth was added
+    private final int[] levelSize;       // Number of edges in that forest
+    private final int[] levelLogEnd;     // Length of the log at that point
+    private final int[] addedLog, removedLog;  // Edge linked and edge cut (or -1) by each change of the forest
+    private final int spanningSize;      // Forest size with all edges: a threshold must reach it to be feasible
+
+    ThresholdMst(GraphSnapshot graph, DoubleConsumer progress) {
+        version = graph.version;
+        int n = graph.nodeCount, m = graph.from.length;
+        edgeCount = m;
+        long[] order = new long[m];  // Bandwidth in the high half, edge id in the low half
+        for (int e = 0; e < m; e++) order[e] = ((long) graph.bandwidth[e] << 32) | e;
+        Arrays.sort(order);
+
+        LinkCutForest forest = new LinkCutForest(n, graph.cost);
+        GraphModel.DisjointSetUnion components = new GraphModel.DisjointSetUnion(n);
+        int[] added = new int[Math.max(1, m)], removed = new int[Math.max(1, m)];
+        int[] bandwidths = new int[Math.max(1, m)], sizes = new int[Math.max(1, m)], logEnds = new int[Math.max(1, m)];
+        long[] costs = new long[Math.max(1, m)];
+        int levels = 0, log = 0, size = 0;
+        long cost = 0;
+        for (int i = m - 1; i >= 0; i--) {
+            int e = (int) order[i];
+            int u = graph.from[e], v = graph.to[e];
+            if (u != v) {
+                if (components.find(u) != components.find(v)) {
+                    components.union(u, v);
+                    forest.link(e, u, v);
+                    cost += graph.cost[e];
+                    size++;
+                    added[log] = e;
+                    removed[log++] = -1;
+                } else {
+                    int worst = forest.mostExpensiveEdge(u, v);
+                    if (graph.cost[worst] > graph.cost[e]) {
+                        forest.cut(worst, graph.from[worst], graph.to[worst]);
+                        forest.link(e, u, v);
+                        cost += graph.cost[e] - graph.cost[worst];
+                        added[log] = e;
+                        removed[log++] = worst;
+                    }
+                }
+            }
+            if (i == 0 || (int) (order[i - 1] >> 32) != graph.bandwidth[e]) {  // Last edge of this bandwidth level
+                bandwidths[levels] = graph.bandwidth[e];
+                costs[levels] = cost;
+                sizes[levels] = size;
+                logEnds[levels++] = log;
+            }
+            if ((m - i) % CHECK_EVERY == 0) GraphSnapshot.checkpoint(progress, (double) (m - i) / m);
+        }
+        levelBandwidth = Arrays.copyOf(bandwidths, levels);
+        levelCost = Arrays.copyOf(costs, levels);
+        levelSize = Arrays.copyOf(sizes, levels);
+        levelLogEnd = Arrays.copyOf(logEnds, levels);
+        addedLog = Arrays.copyOf(added, log);
+        removedLog = Arrays.copyOf(removed, log);
+        spanningSize = size;
+        progress.accept(1);
+    }
+
+    /**
+     * Returns the cost of the cheapest spanning tree (or forest, if the graph is not connected) that uses only links
+     * with bandwidth >= minBandwidth, or Long.MIN_VALUE if those links do not connect everything the whole graph
+     * connects (costs may be negative, so -1 cannot mark that).
+     */
+    public long costAt(int minBandwidth) {
+        int level = levelFor(minBandwidth);
+        if (sizeAt(level) != spanningSize) return Long.MIN_VALUE;
+        return (level >= 0) ? levelCost[level] : 0;
+    }
+
+    /**
+     * Returns the edge ids of the tree costAt describes, or null if the threshold is not feasible.
+     */
+    public int[] treeAt(int minBandwidth) {
+        int level = levelFor(minBandwidth);
+        if (sizeAt(level) != spanningSize) return null;
+        boolean[] inTree = new boolean[edgeCount];
+        for (int i = 0; i < (level >= 0 ? levelLogEnd[level] : 0); i++) {
+            inTree[addedLog[i]] = true;
+            if (removedLog[i] >= 0) inTree[removedLog[i]] = false;
+        }
+        int[] tree = new int[spanningSize];
+        int size = 0;
+        for (int e = 0; e < edgeCount; e++) if (inTree[e]) tree[size++] = e;
+        return tree;
+    }
+
+    /**
+     * Returns the Pareto frontier as pairs {bandwidth, cost}: by decreasing bandwidth, each with a lower cost than the
+     * one before. A threshold B costs as much as the pair with the smallest bandwidth >= B.
+     */
+    public long[][] frontier() {
+        List<long[]> points = new ArrayList<>();
+        for (int level = 0; level < levelBandwidth.length; level++) {
+            if (levelSize[level] != spanningSize) continue;
+            if (points.isEmpty() || levelCost[level] < points.get(points.size() - 1)[1]) {
+                points.add(new long[]{levelBandwidth[level], levelCost[level]});
+            }
+        }
+        return points.toArray(new long[0][]);
+    }
+
+    // Forest size at a level; above the largest bandwidth (level -1) no edge is available yet
+    private int sizeAt(int level) {
+        return (level >= 0) ? levelSize[level] : 0;
+    }
+
+    // Index of the last level whose bandwidth is still >= minBandwidth, or -1 if there is none
+    private int levelFor(int minBandwidth) {
+        int low = 0, high = levelBandwidth.length - 1, found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (levelBandwidth[mid] >= minBandwidth) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * A link-cut tree over the graph nodes (ids 0 to n - 1) and the forest edges (id n + edge id, with the edge's
+     * cost as value), so a tree path between two nodes alternates nodes and edges. Each preferred path is a splay tree
+     * keyed by depth that also knows its most expensive edge.
+     */
+    private static final class LinkCutForest {
+        private final int n;
+        private final int[] cost;
+        private final int[] left, right, parent, best;  // best[x] = most expensive edge in the splay subtree of x, or -1
+        private final boolean[] flipped;                 // Pending reversal of the subtree (used to re-root)
+        private final int[] path;                        // Scratch space for pushDownFromRoot
+
+        LinkCutForest(int n, int[] cost) {
+            this.n = n;
+            this.cost = cost;
+            int size = n + cost.length;
+            left = new int[size];
+            right = new int[size];
+            parent = new int[size];
+            best = new int[size];
+            flipped = new boolean[size];
+            path = new int[size];
+            Arrays.fill(left, -1);
+            Arrays.fill(right, -1);
+            Arrays.fill(parent, -1);
+            Arrays.fill(best, -1);
+            for (int x = n; x < size; x++) best[x] = x;
+        }
+
+        void link(int edge, int u, int v) {
+            int x = n + edge;
+            makeRoot(u);
+            parent[u] = x;
+            makeRoot(x);
+            parent[x] = v;
+        }
+
+        void cut(int edge, int u, int v) {
+            int x = n + edge;
+            detach(u, x);
+            detach(x, v);
+        }
+
+        // Returns the id of the most expensive edge on the tree path between u and v
+        int mostExpensiveEdge(int u, int v) {
+            makeRoot(u);
+            access(v);
+            return best[v] - n;
+        }
+
+        // Removes the tree edge between the adjacent vertices a and b
+        private void detach(int a, int b) {
+            makeRoot(a);
+            access(b);  // b is now the root of its splay tree with a as its only left descendant
+            left[b] = -1;
+            parent[a] = -1;
+            update(b);
+        }
+
+        private void makeRoot(int x) {
+            access(x);
+            flipped[x] ^= true;
+        }
+
+        private void access(int x) {
+            for (int last = -1, y = x; y >= 0; last = y, y = parent[y]) {
+                splay(y);
+                right[y] = last;
+                update(y);
+            }
+            splay(x);
+        }
+
+        private boolean isSplayRoot(int x) {
+            int p = parent[x];
+            return p < 0 || (left[p] != x && right[p] != x);
+        }
+
+        private void splay(int x) {
+            pushDownFromRoot(x);
+            while (!isSplayRoot(x)) {
+                int p = parent[x];
+                if (!isSplayRoot(p)) {
+                    int g = parent[p];
+                    rotate((left[g] == p) == (left[p] == x) ? p : x);  // Zig-zig rotates the parent first
+                }
+                rotate(x);
+            }
+        }
+
+        // Applies pending reversals on the way from the splay root down to x, iteratively
+        private void pushDownFromRoot(int x) {
+            int depth = 0;
+            for (int y = x; ; y = parent[y]) {
+                path[depth++] = y;
+                if (isSplayRoot(y)) break;
+            }
+            while (depth > 0) pushDown(path[--depth]);
+        }
+
+        private void pushDown(int x) {
+            if (!flipped[x]) return;
+            int t = left[x];
+            left[x] = right[x];
+            right[x] = t;
+            if (left[x] >= 0) flipped[left[x]] ^= true;
+            if (right[x] >= 0) flipped[right[x]] ^= true;
+            flipped[x] = false;
+        }
+
+        private void rotate(int x) {
+            int p = parent[x], g = parent[p];
+            boolean pIsRoot = isSplayRoot(p);
+            if (left[p] == x) {
+                left[p] = right[x];
+                if (right[x] >= 0) parent[right[x]] = p;
+                right[x] = p;
+            } else {
+                right[p] = left[x];
+                if (left[x] >= 0) parent[left[x]] = p;
+                left[x] = p;
+            }
+            parent[p] = x;
+            parent[x] = g;
+            if (!pIsRoot) {
+                if (left[g] == p) left[g] = x;
+                else right[g] = x;
+            }
+            update(p);
+            update(x);
+        }
+
+        private void update(int x) {
+            int b = (x >= n) ? x : -1;
+            if (left[x] >= 0) b = moreExpensive(b, best[left[x]]);
+            if (right[x] >= 0) b = moreExpensive(b, best[right[x]]);
+            best[x] = b;
+        }
+
+        private int moreExpensive(int a, int b) {
+            if (a < 0) return b;
+            if (b < 0) return a;
+            return cost[b - n] > cost[a - n] ? b : a;
+        }
+    }
+}
+
+/**
+ * ResiliencePaths finds alternatives to the shortest path (by latency) between two nodes of a snapshot:
+ * - `kShortest` runs Yen's algorithm for the k shortest loopless paths. Each new path is found by a "spur" search
+ *   from every node of the previous path, with the edges that would repeat an earlier path and the nodes of the path
+ *   prefix removed. The spur searches of one round are independent, so they run in parallel, each borrowing reusable
+ *   arrays and an IndexedMinHeap from a pool that lives as long as the call. Every spur search is an A* search guided by the exact distance to the target
+ *   in the whole graph (one Dijkstra run from the target); removing edges only makes distances longer, so this
+ *   estimate never overshoots and the searches settle little more than the nodes along their answer.
+ * - `disjointPair` runs Suurballe's algorithm for the two edge-disjoint paths with the smallest total latency (a
+ *   primary and a backup that share no link). After one Dijkstra run from the source, edge weights are re-weighted by
+ *   the distances so they stay non-negative, the first path's edges may only be used backwards at no cost (which
+ *   cancels them), and a second Dijkstra run finds the path that, combined with the first, gives the best pair.
+ */
+final class ResiliencePaths {
+    /**
+     * A path as its nodes (source first) and the edges between them: edges[i] joins nodes[i] and nodes[i + 1].
+     * Two routes are equal when they use the same edges in the same order.
+     */
+    static final class Route {
+        final int[] nodes, edges;
+        final long latency;
+
+        Route(int[] nodes, int[] edges, long latency) {
+            this.nodes = nodes;
+            this.edges = edges;
+            this.latency = latency;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Route && Arrays.equals(edges, ((Route) other).edges);
+        }
+
+        @Override
+        public int hashCode() { return Arrays.hashCode(edges); }
+    }
+
+    private static final Comparator<Route> SHORTER_FIRST =
+            Comparator.<Route>comparingLong(route -> route.latency).thenComparingInt(route -> route.edges.length);
+
+    /**
+     * Returns up to k shortest loopless paths from source to target, shortest first (fewer when there are not that
+     * many). The list is empty if the target cannot be reached. Progress is reported, and cancellation checked, once
+     * per path found.
+     */
+    static List<Route> kShortest(GraphSnapshot graph, int source, int target, int k, DoubleConsumer progress) {
+        List<Route> found = new ArrayList<>();
+        GraphSnapshot.PathTree fromTarget = graph.shortestPathTree(target, fraction -> progress.accept(fraction / Math.max(k, 1)));
+        long[] toTarget = fromTarget.value;  // Long.MAX_VALUE where the target cannot be reached
+        if (k <= 0 || toTarget[source] == Long.MAX_VALUE) return found;
+        found.add(treePath(graph, fromTarget, source));
+        GraphSnapshot.checkpoint(progress, 1.0 / k);
+
+        PriorityQueue<Route> candidates = new PriorityQueue<>(SHORTER_FIRST);
+        Set<Route> seen = new HashSet<>(found);
+        // Searches are borrowed and returned rather than kept per thread, so nothing outlives the call on pool threads
+        Queue<SpurSearch> searches = new ConcurrentLinkedQueue<>();
+        while (found.size() < k) {
+            Route last = found.get(found.size() - 1);
+            List<Route> spurs = IntStream.range(0, last.edges.length).parallel()
+                    .mapToObj(i -> {
+                        SpurSearch search = searches.poll();
+                        if (search == null) search = new SpurSearch(graph, toTarget);
+                        try {
+                            return search.spur(found, last, i, target);
+                        } finally {
+                            searches.add(search);
+                        }
+                    })
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+            for (Route route : spurs) {
+                if (seen.add(route)) candidates.add(route);
+            }
+            if (candidates.isEmpty()) break;
+            found.add(candidates.poll());
+            GraphSnapshot.checkpoint(progress, (double) found.size() / k);
+        }
+        return found;
+    }
+
+    /**
+     * Returns {primary, backup}: two paths from source to target without a common edge and with the smallest total
+     * latency, the shorter one first, or null if no such pair exists (the target is unreachable or a single link
+     * disconnects it from the source). Progress is reported, and cancellation checked, once per path found.
+     */
+    static Route[] disjointPair(GraphSnapshot graph, int source, int target, DoubleConsumer progress) {
+        if (source == target) return null;
+        GraphSnapshot.PathTree tree = graph.shortestPathTree(source, fraction -> progress.accept(fraction / 2));
+        long[] dist = tree.value;
+        if (dist[target] == Long.MAX_VALUE) return null;
+        GraphSnapshot.checkpoint(progress, 0.5);
+        int m = graph.from.length, n = graph.nodeCount;
+        int[] firstFrom = new int[m];  // Node the first path leaves each of its edges from, or -1 for other edges
+        Arrays.fill(firstFrom, -1);
+        for (int v = target; v != source; ) {
+            int e = tree.prevEdge[v];
+            int u = (graph.from[e] == v) ? graph.to[e] : graph.from[e];
+            firstFrom[e] = u;
+            v = u;
+        }
+
+        // Dijkstra with reduced weights w + dist(u) - dist(v); the first path's edges only backwards, at weight 0
+        long[] reduced = new long[n];
+        int[] prevEdge = new int[n];
+        Arrays.fill(reduced, Long.MAX_VALUE);
+        IndexedMinHeap queue = new IndexedMinHeap(n);
+        reduced[source] = 0;
+        queue.insert(source, 0);
+        while (!queue.isEmpty()) {
+            int u = queue.poll();
+            if (u == target) break;
+            for (int i = graph.offsets[u]; i < graph.offsets[u + 1]; i++) {
+                int e = graph.incident[i];
+                int weight = GraphSnapshot.latency(graph.bandwidth[e]);
+                int v = (graph.from[e] == u) ? graph.to[e] : graph.from[e];
+                if (weight < 0 || v == u || dist[v] == Long.MAX_VALUE) continue;
+                long cost;
+                if (firstFrom[e] >= 0) {
+                    if (firstFrom[e] != v) continue;  // Forwards along the first path
+                    cost = 0;
+                } else {
+                    cost = weight + dist[u] - dist[v];
+                }
+                long alt = reduced[u] + cost;
+                if (alt < reduced[v]) {
+                    reduced[v] = alt;
+                    prevEdge[v] = e;
+                    if (queue.contains(v)) queue.decreaseKey(v, alt);
+                    else queue.insert(v, alt);
+                }
+            }
+        }
+        if (reduced[target] == Long.MAX_VALUE) return null;
+        GraphSnapshot.checkpoint(progress, 1);
+
+        // Keep the edges used by exactly one of the two paths, each in the direction it was used in
+        Map<Integer, ArrayDeque<Integer>> outgoing = new HashMap<>();  // Node -> edges leaving it
+        Set<Integer> cancelled = new HashSet<>();
+        for (int v = target; v != source; ) {
+            int e = prevEdge[v];
+            int u = (graph.from[e] == v) ? graph.to[e] : graph.from[e];
+            if (firstFrom[e] >= 0) cancelled.add(e);
+            else outgoing.computeIfAbsent(u, key -> new ArrayDeque<>()).add(e);
+            v = u;
+        }
+        for (int e = 0; e < m; e++) {
+            if (firstFrom[e] >= 0 && !cancelled.contains(e)) outgoing.computeIfAbsent(firstFrom[e], key -> new ArrayDeque<>()).add(e);
+        }
+        Route[] pair = {walk(graph, outgoing, source, target), walk(graph, outgoing, source, target)};
+        Arrays.sort(pair, SHORTER_FIRST);
+        return pair;
+    }
+
+    // Follows unused edges from the source until it reaches the target, cutting out any loop on the way
+    private static Route walk(GraphSnapshot graph, Map<Integer, ArrayDeque<Integer>> outgoing, int source, int target) {
+        List<Integer> nodes = new ArrayList<>(), edges = new ArrayList<>();
+        Map<Integer, Integer> index = new HashMap<>();  // Node -> its position in the walk so far
+        nodes.add(source);
+        index.put(source, 0);
+        for (int u = source; u != target; ) {
+            int e = outgoing.get(u).poll();
+            int v = (graph.from[e] == u) ? graph.to[e] : graph.from[e];
+            Integer earlier = index.get(v);
+            if (earlier != null) {  // Back at a node of the walk: drop the loop
+                for (int i = nodes.size() - 1; i > earlier; i--) index.remove(nodes.remove(i));
+                edges.subList(earlier, edges.size()).clear();
+            } else {
+                index.put(v, nodes.size());
+                nodes.add(v);
+                edges.add(e);
+            }
+            u = v;
+        }
+        return route(graph, nodes.stream().mapToInt(Integer::intValue).toArray(), edges.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    // The path from a node to the root of a shortest path tree, read off its previous-edge links
+    private static Route treePath(GraphSnapshot graph, GraphSnapshot.PathTree tree, int start) {
+        int hops = 0;
+        for (int v = start; v != tree.source; hops++) {
+            int e = tree.prevEdge[v];
+            v = (graph.from[e] == v) ? graph.to[e] : graph.from[e];
+        }
+        int[] nodes = new int[hops + 1], edges = new int[hops];
+        nodes[0] = start;
+        for (int i = 0; i < hops; i++) {
+            edges[i] = tree.prevEdge[nodes[i]];
+            nodes[i + 1] = (graph.from[edges[i]] == nodes[i]) ? graph.to[edges[i]] : graph.from[edges[i]];
+        }
+        return new Route(nodes, edges, tree.value[start]);
+    }
+
+    private static Route route(GraphSnapshot graph, int[] nodes, int[] edges) {
+        long latency = 0;
+        for (int e : edges) latency += GraphSnapshot.latency(graph.bandwidth[e]);
+        return new Route(nodes, edges, latency);
+    }
+
+    /**
+     * The reusable arrays of spur searches, used by one thread at a time. Blocked nodes and edges and the distances
+     * found so far are marked with the number of the search, so nothing has to be cleared between searches.
+     */
+    private static final class SpurSearch {
+        private final GraphSnapshot graph;
+        private final long[] toTarget;
+        private final long[] dist;
+        private final int[] prevEdge, reached, blockedNode, blockedEdge;
+        private final IndexedMinHeap queue;
+        private int search;
+
+        SpurSearch(GraphSnapshot graph, long[] toTarget) {
+            this.graph = graph;
+            this.toTarget = toTarget;
+            int n = graph.nodeCount;
+            dist = new long[n];
+            prevEdge = new int[n];
+            reached = new int[n];
+            blockedNode = new int[n];
+            blockedEdge = new int[graph.from.length];
+            queue = new IndexedMinHeap(n);
+        }
+
+        /**
+         * Returns the shortest path that follows `last` up to its i-th node and then leaves it by an edge that no
+         * path found so far with the same prefix uses, or null if there is none.
+         */
+        Route spur(List<Route> found, Route last, int i, int target) {
+            search++;
+            int spurNode = last.nodes[i];
+            long rootLatency = 0;
+            for (int j = 0; j < i; j++) {
+                blockedNode[last.nodes[j]] = search;
+                rootLatency += GraphSnapshot.latency(graph.bandwidth[last.edges[j]]);
+            }
+            for (Route route : found) {
+                if (route.edges.length > i && Arrays.equals(route.edges, 0, i, last.edges, 0, i)) {
+                    blockedEdge[route.edges[i]] = search;
+                }
+            }
+
+            queue.clear();
+            reached[spurNode] = search;
+            dist[spurNode] = 0;
+            queue.insert(spurNode, toTarget[spurNode]);
+            boolean arrived = false;
+            while (!queue.isEmpty()) {
+                int u = queue.poll();
+                if (u == target) {
+                    arrived = true;
+                    break;
+                }
+                for (int k = graph.offsets[u]; k < graph.offsets[u + 1]; k++) {
+                    int e = graph.incident[k];
+                    int weight = GraphSnapshot.latency(graph.bandwidth[e]);
+                    if (weight < 0 || blockedEdge[e] == search) continue;
+                    int v = (graph.from[e] == u) ? graph.to[e] : graph.from[e];
+                    if (blockedNode[v] == search || toTarget[v] == Long.MAX_VALUE) continue;
+                    long alt = dist[u] + weight;
+                    if (reached[v] != search || alt < dist[v]) {
+                        boolean queued = reached[v] == search && queue.contains(v);
+                        if (reached[v] == search && !queued) continue;  // Already settled
+                        reached[v] = search;
+                        dist[v] = alt;
+                        prevEdge[v] = e;
+                        if (queued) queue.decreaseKey(v, alt + toTarget[v]);
+                        else queue.insert(v, alt + toTarget[v]);
+                    }
+                }
+            }
+            if (!arrived) return null;
+
+            int hops = 0;
+            for (int v = target; v != spurNode; hops++) {
+                int e = prevEdge[v];
+                v = (graph.from[e] == v) ? graph.to[e] : graph.from[e];
+            }
+            int[] nodes = new int[i + hops + 1], edges = new int[i + hops];
+            System.arraycopy(last.nodes, 0, nodes, 0, i + 1);
+            System.arraycopy(last.edges, 0, edges, 0, i);
+            nodes[i + hops] = target;
+            for (int v = target, slot = i + hops - 1; v != spurNode; slot--) {
+                int e = prevEdge[v];
+                v = (graph.from[e] == v) ? graph.to[e] : graph.from[e];
+                edges[slot] = e;
+                nodes[slot] = v;
+            }
+            return new Route(nodes, edges, rootLatency + dist[target]);
+        }
+    }
+}
+
+/**
+ * IndexedMinHeap is a binary min-heap of int ids (0 to capacity - 1) ordered by long keys.
+ * It remembers the heap position of every id, so `contains` is O(1) and `decreaseKey` moves an id up in O(log n),
+ * unlike java.util.PriorityQueue, which needs an O(n) search to find an element and cannot re-order it in place.
+ */
+class IndexedMinHeap {
+    private final int[] heap;      // heap[i] = id stored at heap slot i
+    private final int[] position;  // position[id] = heap slot of id, or -1 if id is not in the heap
+    private final long[] keys;     // keys[id] = current key of id
+    private int size;
+
+    public IndexedMinHeap(int capacity) {
+        heap = new int[capacity];
+        position = new int[capacity];
+        keys = new long[capacity];
+        Arrays.fill(position, -1);
+    }
+
+    public boolean isEmpty() { return size == 0; }
+
+    public int size() { return size; }
+
+    public boolean contains(int id) { return position[id] >= 0; }
+
+    public long keyOf(int id) { return keys[id]; }
+
+    /**
+     * Adds an id that is not in the heap yet.
+     */
+    public void insert(int id, long key) {
+        if (contains(id)) throw new IllegalArgumentException("Id " + id + " is already in the heap");
+        keys[id] = key;
+        heap[size] = id;
+        position[id] = size;
+        siftUp(size++);
+    }
+
+    /**
+     * Lowers the key of an id that is in the heap.
+     */
+    public void decreaseKey(int id, long key) {
+        if (!contains(id)) throw new IllegalArgumentException("Id " + id + " is not in the heap");
+        if (key > keys[id]) throw new IllegalArgumentException("New key " + key + " is larger than " + keys[id]);
+        keys[id] = key;
+        siftUp(position[id]);
+    }
+
+    /**
+     * Removes and returns the id with the smallest key.
+     */
+    public int poll() {
+        if (size == 0) throw new NoSuchElementException();
+        int top = heap[0];
+        position[top] = -1;
+        if (--size > 0) {
+            heap[0] = heap[size];
+            position[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    /**
+     * Removes every id, in O(size) rather than O(capacity), so the heap can be reused.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) position[heap[i]] = -1;
+        size = 0;
+    }
+
+    private void siftUp(int slot) {
+        int id = heap[slot];
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            if (keys[heap[parent]] <= keys[id]) break;
+            heap[slot] = heap[parent];
+            position[heap[slot]] = slot;
+            slot = parent;
+        }
+        heap[slot] = id;
+        position[id] = slot;
+    }
+
+    private void siftDown(int slot) {
+        int id = heap[slot];
+        while (true) {
+            int child = 2 * slot + 1;
+            if (child >= size) break;
+            if (child + 1 < size && keys[heap[child + 1]] < keys[heap[child]]) child++;
+            if (keys[heap[child]] >= keys[id]) break;
+            heap[slot] = heap[child];
+            position[heap[slot]] = slot;
+            slot = child;
+        }
+        heap[slot] = id;
+        position[id] = slot;
+    }
+}
+
+/**
+ * GraphSnapshot is an immutable copy of a GraphModel in primitive arrays: edge i runs between from[i] and to[i], and
+ * the edges touching node u are incident[offsets[u]] to incident[offsets[u + 1] - 1] (compressed sparse rows).
+ * The MST and path algorithms run on snapshots, so they can run on a background thread while the user keeps editing
+ * the model. Every algorithm reports its progress as a fraction in [0, 1] and stops with a CancellationException
+ * when its thread is interrupted.
+ */
+final class GraphSnapshot {
+    static final DoubleConsumer NO_PROGRESS = fraction -> { };
+    private static final int CHECK_EVERY = 4096;  // Steps between two progress reports and cancellation checks
+
+    final long version;  // Version of the model this snapshot was taken from
+    final int nodeCount;
+    final int[] from, to, cost, bandwidth;
+    final int[] offsets, incident;
+
+    GraphSnapshot(long version, int nodeCount, List<GraphModel.GraphEdge> edges, List<List<GraphModel.GraphEdge>> adjacency) {
+        this.version = version;
+        this.nodeCount = nodeCount;
+        int m = edges.size();
+        from = new int[m];
+        to = new int[m];
+        cost = new int[m];
+        bandwidth = new int[m];
+        for (GraphModel.GraphEdge edge : edges) {
+            from[edge.id] = edge.from.id;
+            to[edge.id] = edge.to.id;
+            cost[edge.id] = edge.cost;
+            bandwidth[edge.id] = edge.bandwidth;
+        }
+        offsets = new int[nodeCount + 1];
+        for (int u = 0; u < nodeCount; u++) offsets[u + 1] = offsets[u] + adjacency.get(u).size();
+        incident = new int[offsets[nodeCount]];
+        for (int u = 0; u < nodeCount; u++) {
+            int slot = offsets[u];
+            for (GraphModel.GraphEdge edge : adjacency.get(u)) incident[slot++] = edge.id;
+        }
+    }
+
+    /**
+     * Wraps arrays that already are in snapshot form (such as those of a loaded graph file) without copying them.
+     * The caller must not change the arrays afterwards.
+     */
+    GraphSnapshot(long version, int nodeCount, int[] from, int[] to, int[] cost, int[] bandwidth, int[] offsets, int[] incident) {
+        this.version = version;
+        this.nodeCount = nodeCount;
+        this.from = from;
+        this.to = to;
+        this.cost = cost;
+        this.bandwidth = bandwidth;
+        this.offsets = offsets;
+        this.incident = incident;
+    }
+
+    /**
+     * The result of a single-source path search: a value for every node (distance or width) and the id of the edge
+     * used to reach it (-1 for the source and for unreachable nodes).
+     */
+    static final class PathTree {
+        final long version;
+        final int source;
+        final long[] value;
+        final int[] prevEdge;
+
+        PathTree(long version, int source, long[] value, int[] prevEdge) {
+            this.version = version;
+            this.source = source;
+            this.value = value;
+            this.prevEdge = prevEdge;
+        }
+
+        /**
+         * Returns the value at the node, or -1 if the node is unreachable or was added after the tree was computed.
+         */
+        long valueAt(int id) {
+            if (id >= value.length || (id != source && prevEdge[id] < 0)) return -1;
+            return value[id];
+        }
+
+        /**
+         * Estimated heap size: 8 bytes per value, 4 per edge id, and the array headers.
+         */
+        long bytes() {
+            return 12L * value.length + 64;
+        }
+    }
+
+    /**
+     * Returns the latency weight of a link for shortest paths: bandwidth taken as the inverse weight.
+     * Links with no bandwidth cannot carry traffic and have no weight (-1).
+     */
+    static int latency(int bandwidth) {
+        return bandwidth <= 0 ? -1 : 1000 / bandwidth;
+    }
+
+    /**
+     * Returns the ids of the MST edges, found with Kruskal's algorithm: edges sorted by cost, a DSU to avoid cycles.
+     */
+    int[] minimumSpanningTree(DoubleConsumer progress) {
+        int m = from.length;
+        long[] sorted = new long[m];  // Cost in the high 32 bits, edge id in the low 32 bits, so one sort orders both
+        for (int e = 0; e < m; e++) sorted[e] = ((long) cost[e] << 32) | e;
+        Arrays.sort(sorted);
+        GraphModel.DisjointSetUnion dsu = new GraphModel.DisjointSetUnion(nodeCount);
+        int[] tree = new int[Math.max(0, nodeCount - 1)];
+        int size = 0;
+        for (int i = 0; i < m && size < tree.length; i++) {
+            if (i % CHECK_EVERY == 0) checkpoint(progress, (double) i / m);
+            int e = (int) sorted[i];
+            if (dsu.find(from[e]) != dsu.find(to[e])) {
+                tree[size++] = e;
+                dsu.union(from[e], to[e]);
+            }
+        }
+        progress.accept(1);
+        return Arrays.copyOf(tree, size);
+    }
+
+    /**
+     * Returns the shortest path tree of the source based on bandwidth.
+     * This uses Dijkstra’s algorithm with bandwidth as the inverse weight. Distances are kept in a long array indexed by
+     * node id and the frontier in an IndexedMinHeap, so a shorter distance moves the node up the heap with decreaseKey.
+     * The edge used to reach each node is recorded, so paths are rebuilt from exactly the edges Dijkstra relaxed.
+     */
+    PathTree shortestPathTree(int source, DoubleConsumer progress) {
+        long[] dist = new long[nodeCount];
+        int[] prevEdge = new int[nodeCount];
+        Arrays.fill(dist, Long.MAX_VALUE);
+        Arrays.fill(prevEdge, -1);
+        IndexedMinHeap queue = new IndexedMinHeap(nodeCount);
+        dist[source] = 0;
+        queue.insert(source, 0);
+
+        for (int settled = 0; !queue.isEmpty(); settled++) {
+            if (settled % CHECK_EVERY == 0) checkpoint(progress, (double) settled / nodeCount);
+            int u = queue.poll();
+            for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                int e = incident[i];
+                int weight = latency(bandwidth[e]);
+                if (weight < 0) continue;
+                int v = (from[e] == u) ? to[e] : from[e];
+                long alt = dist[u] + weight;
+                if (alt < dist[v]) {
+                    dist[v] = alt;
+                    prevEdge[v] = e;
+                    if (queue.contains(v)) {
+                        queue.decreaseKey(v, alt);
+                    } else {
+                        queue.insert(v, alt);
+                    }
+                }
+            }
+        }
+        progress.accept(1);
+        return new PathTree(version, source, dist, prevEdge);
+    }
+
+    /**
+     * Returns the widest path tree of the source, searched until the target is settled: the width of a node is the
+     * largest bottleneck bandwidth of a path to it. This is Dijkstra’s algorithm on (max, min) instead of (min, +),
+     * with the heap popping the widest node first (keys are negated widths).
+     */
+    PathTree widestPathTree(int source, int target, DoubleConsumer progress) {
+        long[] width = new long[nodeCount];
+        int[] prevEdge = new int[nodeCount];
+        Arrays.fill(width, -1);
+        Arrays.fill(prevEdge, -1);
+        IndexedMinHeap queue = new IndexedMinHeap(nodeCount);
+        width[source] = Long.MAX_VALUE;
+        queue.insert(source, -Long.MAX_VALUE);
+
+        for (int settled = 0; !queue.isEmpty(); settled++) {
+            if (settled % CHECK_EVERY == 0) checkpoint(progress, (double) settled / nodeCount);
+            int u = queue.poll();
+            if (u == target) break;
+            for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                int e = incident[i];
+                if (bandwidth[e] <= 0) continue;
+                int v = (from[e] == u) ? to[e] : from[e];
+                long alt = Math.min(width[u], bandwidth[e]);
+                if (alt > width[v]) {
+                    width[v] = alt;
+                    prevEdge[v] = e;
+                    if (queue.contains(v)) {
+                        queue.decreaseKey(v, -alt);
+                    } else {
+                        queue.insert(v, -alt);
+                    }
+                }
+            }
+        }
+        progress.accept(1);
+        return new PathTree(version, source, width, prevEdge);
+    }
+
+    /**
+     * Reports progress and stops the computation if its thread was interrupted (the job was cancelled).
+     */
+    static void checkpoint(DoubleConsumer progress, double fraction) {
+        if (Thread.currentThread().isInterrupted()) throw new CancellationException();
+        progress.accept(fraction);
+    }
+}
+
+/**
+ * GraphComputeService runs graph computations on a small pool of background threads, so the event dispatch thread
+ * only takes snapshots and applies results. At most one job is current: submitting a job cancels the previous one
+ * (its thread is interrupted and its result is dropped), so a new click always supersedes the old computation.
+ * Progress, results and failures of the current job are delivered on the event dispatch thread.
+ */
+class GraphComputeService {
+    /**
+     * A computation that reports its progress as a fraction in [0, 1].
+     */
+    interface Job<T> {
+        T run(DoubleConsumer progress);
+    }
+
+    /**
+     * Receives the progress of the current job on the event dispatch thread.
+     */
+    interface ProgressListener {
+        void progress(String task, int percent);
+        void finished(String task);
+        void failed(String task, Throwable error);
+    }
+
+    private final ExecutorService workers;
+    private final AtomicLong generation = new AtomicLong();  // Number of the current job
+    private Future<?> current;
+    private ProgressListener listener = new ProgressListener() {
+        public void progress(String task, int percent) { }
+        public void finished(String task) { }
+        public void failed(String task, Throwable error) { }
+    };
+
+    public GraphComputeService() {
+        // Two threads, so a new job does not wait for a cancelled one to notice its interrupt
+        workers = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "graph-compute");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void setProgressListener(ProgressListener listener) { this.listener = listener; }
+
+    /**
+     * Cancels the current job and starts this one. Must be called on the event dispatch thread.
+     * `onDone` receives the result on the event dispatch thread, unless another job was submitted in the meantime.
+     */
+    public <T> void submit(String task, Job<T> job, Consumer<T> onDone) {
+        cancel();
+        long number = generation.incrementAndGet();
+        current = workers.submit(() -> {
+            int[] lastPercent = {-1};
+            try {
+                T result = job.run(fraction -> {
+                    int percent = (int) (fraction * 100);
+                    if (percent != lastPercent[0]) {  // Only publish when the visible percentage changes
+                        lastPercent[0] = percent;
+                        publish(number, () -> listener.progress(task, percent));
+                    }
+                });
+                publish(number, () -> {
+                    listener.finished(task);
+                    onDone.accept(result);
+                });
+            } catch (CancellationException e) {
+                // Superseded by a newer job, nothing to report
+            } catch (RuntimeException | Error e) {
+                publish(number, () -> listener.failed(task, e));
+            }
+        });
+    }
+
+    /**
+     * Cancels the current job, if any. Its result will not be delivered.
+     */
+    public void cancel() {
+        generation.incrementAndGet();
+        if (current != null) current.cancel(true);
+        current = null;
+    }
+
+    // Runs the action on the event dispatch thread if the job is still the current one by then
+    private void publish(long number, Runnable action) {
+        SwingUtilities.invokeLater(() -> {
+            if (generation.get() == number) action.run();
+        });
+    }
+}
+
+/**
+ * SpatialGrid is a uniform grid over node coordinates for hit testing and viewport culling.
+ * Each node is stored in the cell containing its centre. Each edge is stored in every cell its bounding box (plus
+ * room for its label) covers, unless that box spans more than MAX_EDGE_CELLS cells; such long edges are kept in one
+ * list and checked one by one. A click only looks at the few cells around it, and painting only visits the cells
+ * that overlap the clip rectangle.
+ */
+class SpatialGrid {
+    static final int CELL = 64;                // Cell size in pixels
+    private static final int MAX_EDGE_CELLS = 64;
+    private static final int NODE_MARGIN = 10;  // Node radius, so nodes on the border of the clip are still drawn
+    private static final int LABEL_MARGIN = 100; // Room for the cost/bandwidth label drawn from the middle of an edge
+
+    private final Map<Long, List<GraphModel.GraphNode>> nodeCells = new HashMap<>();
+    private final Map<Long, List<GraphModel.GraphEdge>> edgeCells = new HashMap<>();
+    private final List<GraphModel.GraphEdge> longEdges = new ArrayList<>();
+    private int[] edgeStamps = new int[16];     // Last query that reported each edge, so edges in several cells are reported once
+    private int query;
+
+    public void addNode(GraphModel.GraphNode node) {
+        nodeCells.computeIfAbsent(cellKey(cellOf(node.x), cellOf(node.y)), k -> new ArrayList<>()).add(node);
+    }
+
+    public void addEdge(GraphModel.GraphEdge edge) {
+        int minX = cellOf(Math.min(edge.from.x, edge.to.x)), maxX = cellOf(Math.max(edge.from.x, edge.to.x));
+        int minY = cellOf(Math.min(edge.from.y, edge.to.y)), maxY = cellOf(Math.max(edge.from.y, edge.to.y));
+        if ((long) (maxX - minX + 1) * (maxY - minY + 1) > MAX_EDGE_CELLS) {
+            longEdges.add(edge);
+            return;
+        }
+        for (int cx = minX; cx <= maxX; cx++) {
+            for (int cy = minY; cy <= maxY; cy++) {
+                edgeCells.computeIfAbsent(cellKey(cx, cy), k -> new ArrayList<>()).add(edge);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the grid from scratch, after node coordinates have changed.
+     */
+    public void rebuild(List<GraphModel.GraphNode> nodes, List<GraphModel.GraphEdge> edges) {
+        nodeCells.clear();
+        edgeCells.clear();
+        longEdges.clear();
+        for (GraphModel.GraphNode node : nodes) addNode(node);
+        for (GraphModel.GraphEdge edge : edges) addEdge(edge);
+    }
+
+    /**
+     * Returns the node closest to (x, y) among those whose centre is less than `radius` away, or null.
+     */
+    public GraphModel.GraphNode nodeAt(int x, int y, int radius) {
+        GraphModel.GraphNode best = null;
+        double bestDistance = radius;
+        for (int cx = cellOf(x - radius); cx <= cellOf(x + radius); cx++) {
+            for (int cy = cellOf(y - radius); cy <= cellOf(y + radius); cy++) {
+                List<GraphModel.GraphNode> cell = nodeCells.get(cellKey(cx, cy));
+                if (cell == null) continue;
+                for (GraphModel.GraphNode node : cell) {
+                    double distance = Math.hypot(node.x - x, node.y - y);
+                    if (distance < bestDistance) {
+                        best = node;
+                        bestDistance = distance;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Passes every node that can be visible inside the clip rectangle to the consumer.
+     */
+    public void forEachVisibleNode(Rectangle clip, Consumer<GraphModel.GraphNode> consumer) {
+        Rectangle area = new Rectangle(clip.x - NODE_MARGIN, clip.y - NODE_MARGIN, clip.width + 2 * NODE_MARGIN, clip.height + 2 * NODE_MARGIN);
+        forEachCell(nodeCells, area, cell -> {
+            for (GraphModel.GraphNode node : cell) {
+                if (area.contains(node.x, node.y)) consumer.accept(node);
+            }
+        });
+    }
+
+    /**
+     * Passes every edge that can be visible inside the clip rectangle to the consumer, each edge once.
+     */
+    public void forEachVisibleEdge(Rectangle clip, Consumer<GraphModel.GraphEdge> consumer) {
+        query++;
+        // Edges are indexed by their bare bounding box, so grow the clip by the label margin to find edges whose label reaches it
+        Rectangle area = new Rectangle(clip.x - LABEL_MARGIN, clip.y - LABEL_MARGIN, clip.width + 2 * LABEL_MARGIN, clip.height + 2 * LABEL_MARGIN);
+        forEachCell(edgeCells, area, cell -> {
+            for (GraphModel.GraphEdge edge : cell) {
+                if (edge.id >= edgeStamps.length) edgeStamps = Arrays.copyOf(edgeStamps, Math.max(edge.id + 1, edgeStamps.length * 2));
+                if (edgeStamps[edge.id] != query && isVisible(edge, clip)) {
+                    edgeStamps[edge.id] = query;
+                    consumer.accept(edge);
+                }
+            }
+        });
+        for (GraphModel.GraphEdge edge : longEdges) {
+            if (isVisible(edge, clip)) consumer.accept(edge);
+        }
+    }
+
+    /**
+     * Returns whether the edge, with its label, can overlap the clip rectangle.
+     */
+    public static boolean isVisible(GraphModel.GraphEdge edge, Rectangle clip) {
+        int minX = Math.min(edge.from.x, edge.to.x) - LABEL_MARGIN, maxX = Math.max(edge.from.x, edge.to.x) + LABEL_MARGIN;
+        int minY = Math.min(edge.from.y, edge.to.y) - LABEL_MARGIN, maxY = Math.max(edge.from.y, edge.to.y) + LABEL_MARGIN;
+        return maxX >= clip.x && minX <= clip.x + clip.width && maxY >= clip.y && minY <= clip.y + clip.height;
+    }
+
+    // Visits the cells overlapping the area; when the area covers more cells than are occupied, visits the occupied ones
+    private static <T> void forEachCell(Map<Long, List<T>> cells, Rectangle area, Consumer<List<T>> visitor) {
+        int minX = cellOf(area.x), maxX = cellOf(area.x + area.width);
+        int minY = cellOf(area.y), maxY = cellOf(area.y + area.height);
+        if ((long) (maxX - minX + 1) * (maxY - minY + 1) > cells.size()) {
+            for (Map.Entry<Long, List<T>> entry : cells.entrySet()) {
+                int cx = (int) (entry.getKey() >> 32), cy = (int) (long) entry.getKey();
+                if (cx >= minX && cx <= maxX && cy >= minY && cy <= maxY) visitor.accept(entry.getValue());
+            }
+            return;
+        }
+        for (int cx = minX; cx <= maxX; cx++) {
+            for (int cy = minY; cy <= maxY; cy++) {
+                List<T> cell = cells.get(cellKey(cx, cy));
+                if (cell != null) visitor.accept(cell);
+            }
+        }
+    }
+
+    private static int cellOf(int coordinate) {
+        return Math.floorDiv(coordinate, CELL);
+    }
+
+    private static long cellKey(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+}
+
+/**
+ * ShortestPathCache keeps the shortest path trees of recently used source nodes, so repeated path queries from the
+ * same source skip Dijkstra. Trees are evicted least recently used first once their estimated size exceeds the byte
+ * budget. Adding an edge (u, v) with weight w can only shorten distances in a tree where dist(u) + w < dist(v) or
+ * dist(v) + w < dist(u), so only those trees are dropped and all others stay valid.
+ * Nodes added after a tree was computed have no edges in it yet and are simply unreachable from its source.
+ */
+class ShortestPathCache {
+    private final long maxBytes;
+    private long usedBytes;
+    private final LinkedHashMap<Integer, GraphSnapshot.PathTree> trees = new LinkedHashMap<>(16, 0.75f, true);  // Access order, eldest first
+
+    public ShortestPathCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the cached tree of the source, or null, and marks it as recently used.
+     */
+    public GraphSnapshot.PathTree get(int source) {
+        return trees.get(source);
+    }
+
+    /**
+     * Caches a tree, evicting the least recently used trees until the cache fits in its budget again.
+     * The newest tree is always kept, even if it alone is larger than the budget.
+     */
+    public void put(GraphSnapshot.PathTree tree) {
+        GraphSnapshot.PathTree old = trees.put(tree.source, tree);
+        if (old != null) usedBytes -= old.bytes();
+        usedBytes += tree.bytes();
+        Iterator<GraphSnapshot.PathTree> eldest = trees.values().iterator();
+        while (usedBytes > maxBytes && trees.size() > 1) {
+            usedBytes -= eldest.next().bytes();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Drops the trees whose distances the new edge could improve.
+     */
+    public void edgeAdded(GraphModel.GraphEdge edge) {
+        int weight = GraphSnapshot.latency(edge.bandwidth);
+        if (weight < 0) return;  // The edge carries no traffic and cannot change any path
+        Iterator<GraphSnapshot.PathTree> it = trees.values().iterator();
+        while (it.hasNext()) {
+            GraphSnapshot.PathTree tree = it.next();
+            long du = tree.valueAt(edge.from.id), dv = tree.valueAt(edge.to.id);
+            boolean improvesTo = du >= 0 && (dv < 0 || du + weight < dv);
+            boolean improvesFrom = dv >= 0 && (du < 0 || dv + weight < du);
+            if (improvesTo || improvesFrom) {
+                usedBytes -= tree.bytes();
+                it.remove();
+            }
+        }
+    }
+
+    public int size() { return trees.size(); }
+
+    public void clear() {
+        trees.clear();
+        usedBytes = 0;
+    }
+}
+
+/**
+ * BottleneckIndex answers all-pairs widest path queries. The widest path between two nodes always runs along a maximum
+ * spanning tree (the bandwidth version of the MST), so the index builds that tree with Kruskal's algorithm on
+ * decreasing bandwidth and roots each of its trees. Binary lifting tables store, for every node, its 2^k-th ancestor
+ * and the narrowest link on the way there; a query climbs from both nodes to their lowest common ancestor in O(log V)
+ * and returns the narrowest link seen.
+ */
+class BottleneckIndex {
+    final long version;              // Version of the snapshot the index was built from
+    private final int[][] up;        // up[k][v] = 2^k-th ancestor of v (a root is its own ancestor)
+    private final int[][] narrowest; // narrowest[k][v] = smallest bandwidth on the way from v to up[k][v]
+    private final int[] depth;
+    private final int[] component;   // Root of the tree containing each node
+
+    /**
+     * Builds the index from a snapshot, so it can run on a background thread.
+     */
+    public BottleneckIndex(GraphSnapshot graph) {
+        version = graph.version;
+        int n = graph.nodeCount, m = graph.from.length;
+
+        // Maximum spanning forest: edges sorted by decreasing bandwidth (bandwidth in the high half, edge id in the low)
+        long[] order = new long[m];
+        int usable = 0;
+        for (int e = 0; e < m; e++) {
+            if (graph.bandwidth[e] > 0) order[usable++] = ((long) graph.bandwidth[e] << 32) | e;
+        }
+        Arrays.sort(order, 0, usable);
+        GraphModel.DisjointSetUnion dsu = new GraphModel.DisjointSetUnion(n);
+        int[] treeOffsets = new int[n + 1];
+        int[] treeEdges = new int[Math.max(0, n - 1)];
+        int treeSize = 0;
+        for (int i = usable - 1; i >= 0; i--) {
+            int e = (int) order[i];
+            int u = graph.from[e], v = graph.to[e];
+            if (dsu.find(u) != dsu.find(v)) {
+                dsu.union(u, v);
+                treeEdges[treeSize++] = e;
+                treeOffsets[u + 1]++;
+                treeOffsets[v + 1]++;
+            }
+        }
+        for (int v = 0; v < n; v++) treeOffsets[v + 1] += treeOffsets[v];
+        int[] treeTargets = new int[treeOffsets[n]], treeBandwidth = new int[treeOffsets[n]];
+        int[] next = Arrays.copyOf(treeOffsets, n);
+        for (int i = 0; i < treeSize; i++) {
+            int e = treeEdges[i];
+            int u = graph.from[e], v = graph.to[e];
+            treeTargets[next[u]] = v;
+            treeBandwidth[next[u]++] = graph.bandwidth[e];
+            treeTargets[next[v]] = u;
+            treeBandwidth[next[v]++] = graph.bandwidth[e];
+        }
+
+        // Root every tree with an iterative BFS, recording each node's parent and the link to it
+        int levels = 1;
+        while ((1 << levels) < Math.max(1, n)) levels++;
+        up = new int[levels][n];
+        narrowest = new int[levels][n];
+        depth = new int[n];
+        component = new int[n];
+        Arrays.fill(component, -1);
+        int[] queue = new int[n];
+        for (int root = 0; root < n; root++) {
+            if (component[root] >= 0) continue;
+            int head = 0, tail = 0;
+            queue[tail++] = root;
+            component[root] = root;
+            up[0][root] = root;
+            narrowest[0][root] = Integer.MAX_VALUE;
+            while (head < tail) {
+                int u = queue[head++];
+                for (int e = treeOffsets[u]; e < treeOffsets[u + 1]; e++) {
+                    int v = treeTargets[e];
+                    if (component[v] >= 0) continue;
+                    component[v] = root;
+                    depth[v] = depth[u] + 1;
+                    up[0][v] = u;
+                    narrowest[0][v] = treeBandwidth[e];
+                    queue[tail++] = v;
+                }
+            }
+        }
+        for (int k = 1; k < levels; k++) {
+            for (int v = 0; v < n; v++) {
+                int mid = up[k - 1][v];
+                up[k][v] = up[k - 1][mid];
+                narrowest[k][v] = Math.min(narrowest[k - 1][v], narrowest[k - 1][mid]);
+            }
+        }
+    }
+
+    /**
+     * Returns the largest bottleneck bandwidth over all paths between u and v, -1 if they are not connected,
+     * or Integer.MAX_VALUE if u == v.
+     */
+    public int query(int u, int v) {
+        if (component[u] != component[v]) return -1;
+        int result = Integer.MAX_VALUE;
+        if (depth[u] < depth[v]) { int t = u; u = v; v = t; }
+        for (int k = up.length - 1; k >= 0; k--) {
+            if (depth[u] - (1 << k) >= depth[v]) {
+                result = Math.min(result, narrowest[k][u]);
+                u = up[k][u];
+            }
+        }
+        if (u == v) return result;
+        for (int k = up.length - 1; k >= 0; k--) {
+            if (up[k][u] != up[k][v]) {
+                result = Math.min(result, Math.min(narrowest[k][u], narrowest[k][v]));
+                u = up[k][u];
+                v = up[k][v];
+            }
+        }
+        return Math.min(result, Math.min(narrowest[0][u], narrowest[0][v]));
+    }
+}
+
+/**
+ * GraphFiles reads and writes whole graphs in two formats:
+ * - An edge-list CSV file: lines of `from,to,cost,bandwidth` for edges and optional lines of `id,x,y` for node
+ *   positions. Nodes are numbered from 0 up to the largest id used; nodes without a position are laid out on a square
+ *   grid. Blank lines and lines starting with '#' or a letter (such as a header) are skipped.
+ * - A binary file with exactly the arrays of a GraphSnapshot plus node positions, as big-endian ints:
+ *   magic, format version, node count n, edge count m, x[n], y[n], from[m], to[m], cost[m], bandwidth[m],
+ *   offsets[n + 1] and incident[offsets[n]].
+ * Both are read through memory-mapped buffers: the CSV parser walks the mapped bytes and collects numbers straight
+ * into int arrays, and the binary arrays are bulk-copied out of the mapping, so loading creates no object per line.
+ * `read` tells the formats apart by the magic number; `write` picks CSV for a `.csv` file name and binary otherwise.
+ */
+class GraphFiles {
+    static final int MAGIC = 0x47525048;  // "GRPH"
+    static final int FORMAT_VERSION = 1;
+    private static final int HEADER_INTS = 4;
+    private static final long MAP_WINDOW = 64L << 20;  // The CSV file is mapped 64 MB at a time
+    private static final int GRID_SPACING = 40;        // Distance between nodes that had no position in the CSV file
+
+    /**
+     * A graph in primitive arrays: the positions of the nodes and the snapshot arrays of the edges (see GraphSnapshot).
+     */
+    static final class GraphData {
+        final int[] x, y;
+        final int[] from, to, cost, bandwidth;
+        final int[] offsets, incident;
+
+        GraphData(int[] x, int[] y, int[] from, int[] to, int[] cost, int[] bandwidth, int[] offsets, int[] incident) {
+            this.x = x;
+            this.y = y;
+            this.from = from;
+            this.to = to;
+            this.cost = cost;
+            this.bandwidth = bandwidth;
+            this.offsets = offsets;
+            this.incident = incident;
+        }
+
+        int nodeCount() { return x.length; }
+
+        int edgeCount() { return from.length; }
+    }
+
+    /**
+     * Reads a graph file in either format.
+     */
+    public static GraphData read(Path path, DoubleConsumer progress) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate(4);
+            while (head.hasRemaining() && channel.read(head, head.position()) > 0) { }
+            boolean binary = head.position() == 4 && head.getInt(0) == MAGIC;
+            return binary ? readBinary(channel, path) : readCsv(channel, progress);
+        }
+    }
+
+    /**
+     * Writes a graph file, as CSV if the file name ends in `.csv` and in the binary format otherwise.
+     */
+    public static void write(Path path, GraphData data) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            if (path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv")) writeCsv(channel, data);
+            else writeBinary(channel, data);
+        }
+    }
+
+    private static GraphData readBinary(FileChannel channel, Path path) throws IOException {
+        long size = channel.size();
+        if (size < HEADER_INTS * 4L) throw new IOException(path + ": truncated header");
+        if (size > Integer.MAX_VALUE) throw new IOException(path + ": graph files over 2 GB are not supported");
+        IntBuffer ints = channel.map(FileChannel.MapMode.READ_ONLY, 0, size).asIntBuffer();
+        if (ints.get() != MAGIC) throw new IOException(path + ": not a graph file");
+        int version = ints.get();
+        if (version != FORMAT_VERSION) throw new IOException(path + ": unsupported format version " + version);
+        int n = ints.get(), m = ints.get();
+        if (n < 0 || m < 0 || ints.remaining() < 2L * n + 4L * m + n + 1) throw new IOException(path + ": truncated data");
+        int[] x = new int[n], y = new int[n];
+        int[] from = new int[m], to = new int[m], cost = new int[m], bandwidth = new int[m];
+        int[] offsets = new int[n + 1];
+        ints.get(x).get(y).get(from).get(to).get(cost).get(bandwidth).get(offsets);
+        if (offsets[0] != 0 || offsets[n] != ints.remaining()) throw new IOException(path + ": bad incidence offsets");
+        int[] incident = new int[offsets[n]];
+        ints.get(incident);
+        validate(path, n, from, to, offsets, incident);
+        return new GraphData(x, y, from, to, cost, bandwidth, offsets, incident);
+    }
+
+    // Checks everything the algorithms rely on, so a damaged file is rejected instead of failing later
+    private static void validate(Path path, int n, int[] from, int[] to, int[] offsets, int[] incident) throws IOException {
+        for (int e = 0; e < from.length; e++) {
+            if (from[e] < 0 || from[e] >= n || to[e] < 0 || to[e] >= n) throw new IOException(path + ": edge " + e + " has no such node");
+        }
+        for (int u = 0; u < n; u++) {
+            if (offsets[u + 1] < offsets[u]) throw new IOException(path + ": bad incidence offsets");
+            for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                int e = incident[i];
+                if (e < 0 || e >= from.length || (from[e] != u && to[e] != u)) throw new IOException(path + ": edge " + e + " does not touch node " + u);
+            }
+        }
+    }
+
+    private static void writeBinary(FileChannel channel, GraphData data) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+        IntBuffer ints = buffer.asIntBuffer();
+        int[] header = {MAGIC, FORMAT_VERSION, data.nodeCount(), data.edgeCount()};
+        for (int[] array : new int[][]{header, data.x, data.y, data.from, data.to, data.cost, data.bandwidth, data.offsets, data.incident}) {
+            for (int start = 0; start < array.length; ) {
+                int count = Math.min(ints.remaining(), array.length - start);
+                ints.put(array, start, count);
+                start += count;
+                if (!ints.hasRemaining()) flush(channel, buffer, ints);
+            }
+        }
+        flush(channel, buffer, ints);
+    }
+
+    // Writes the ints put so far and empties the buffer
+    private static void flush(FileChannel channel, ByteBuffer buffer, IntBuffer ints) throws IOException {
+        buffer.position(0).limit(ints.position() * 4);
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+        ints.clear();
+    }
+
+    /**
+     * Parses the CSV format byte by byte. Numbers go into growable int arrays; a record is only kept when its line
+     * ends, and its number of fields says whether it is a node (3) or an edge (4).
+     */
+    private static GraphData readCsv(FileChannel channel, DoubleConsumer progress) throws IOException {
+        IntArray nodeIds = new IntArray(), nodeX = new IntArray(), nodeY = new IntArray();
+        IntArray from = new IntArray(), to = new IntArray(), cost = new IntArray(), bandwidth = new IntArray();
+        int[] fields = new int[4];
+        int fieldCount = 0;
+        long value = 0;
+        boolean negative = false, inNumber = false, lineHasData = false, skipLine = false;
+        long line = 1, size = channel.size();
+        int maxId = -1;
+        for (long base = 0; base <= size; base += MAP_WINDOW) {
+            long length = Math.min(MAP_WINDOW, size - base);
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, base, length);
+            GraphSnapshot.checkpoint(progress, size == 0 ? 1 : (double) base / size);
+            boolean last = base + length == size;
+            for (int i = 0, end = (int) length + (last ? 1 : 0); i < end; i++) {
+                byte b = (i < length) ? bytes.get(i) : (byte) '\n';  // A final newline ends the last line
+                if (b == '\n') {
+                    if (!skipLine && lineHasData) {
+                        if (fieldCount == 4) throw new IOException("Line " + line + ": more than 4 fields");
+                        if (!inNumber) throw new IOException("Line " + line + ": empty field");
+                        fields[fieldCount++] = (int) (negative ? -value : value);
+                        if (fields[0] < 0 || (fieldCount == 4 && fields[1] < 0)) throw new IOException("Line " + line + ": negative node id");
+                        if (fieldCount == 3) {
+                            nodeIds.add(fields[0]);
+                            nodeX.add(fields[1]);
+                            nodeY.add(fields[2]);
+                            maxId = Math.max(maxId, fields[0]);
+                        } else if (fieldCount == 4) {
+                            from.add(fields[0]);
+                            to.add(fields[1]);
+                            cost.add(fields[2]);
+                            bandwidth.add(fields[3]);
+                            maxId = Math.max(maxId, Math.max(fields[0], fields[1]));
+                        } else {
+                            throw new IOException("Line " + line + ": expected id,x,y or from,to,cost,bandwidth");
+                        }
+                    }
+                    fieldCount = 0;
+                    value = 0;
+                    negative = inNumber = lineHasData = skipLine = false;
+                    line++;
+                } else if (skipLine || b == '\r' || b == ' ' || b == '\t') {
+                    continue;
+                } else if (!lineHasData && (b == '#' || Character.isLetter(b))) {
+                    skipLine = true;  // Comment or header
+                } else if (b == ',') {
+                    if (fieldCount == 3) throw new IOException("Line " + line + ": more than 4 fields");
+                    if (!inNumber) throw new IOException("Line " + line + ": empty field");
+                    fields[fieldCount++] = (int) (negative ? -value : value);
+                    value = 0;
+                    negative = inNumber = false;
+                } else if (b == '-' && !inNumber && !negative) {
+                    negative = lineHasData = true;
+                } else if (b >= '0' && b <= '9') {
+                    value = value * 10 + (b - '0');
+                    if (value > Integer.MAX_VALUE) throw new IOException("Line " + line + ": number out of range");
+                    inNumber = lineHasData = true;
+                } else {
+                    throw new IOException("Line " + line + ": unexpected character '" + (char) b + "'");
+                }
+            }
+            if (last) break;
+        }
+
+        int n = maxId + 1;
+        int[] x = new int[n], y = new int[n];
+        boolean[] placed = new boolean[n];
+        for (int i = 0; i < nodeIds.size; i++) {
+            int id = nodeIds.values[i];
+            x[id] = nodeX.values[i];
+            y[id] = nodeY.values[i];
+            placed[id] = true;
+        }
+        int columns = (int) Math.ceil(Math.sqrt(n));
+        for (int u = 0; u < n; u++) {
+            if (placed[u]) continue;
+            x[u] = GRID_SPACING / 2 + (u % columns) * GRID_SPACING;
+            y[u] = GRID_SPACING / 2 + (u / columns) * GRID_SPACING;
+        }
+        int[] edgeFrom = from.toArray(), edgeTo = to.toArray();
+        int[] offsets = new int[n + 1];
+        for (int e = 0; e < edgeFrom.length; e++) {
+            offsets[edgeFrom[e] + 1]++;
+            if (edgeTo[e] != edgeFrom[e]) offsets[edgeTo[e] + 1]++;  // A self-loop is listed once, as in the model
+        }
+        for (int u = 0; u < n; u++) offsets[u + 1] += offsets[u];
+        int[] incident = new int[offsets[n]], next = Arrays.copyOf(offsets, n);
+        for (int e = 0; e < edgeFrom.length; e++) {
+            incident[next[edgeFrom[e]]++] = e;
+            if (edgeTo[e] != edgeFrom[e]) incident[next[edgeTo[e]]++] = e;
+        }
+        progress.accept(1);
+        return new GraphData(x, y, edgeFrom, edgeTo, cost.toArray(), bandwidth.toArray(), offsets, incident);
+    }
+
+    private static void writeCsv(FileChannel channel, GraphData data) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+        buffer.put("# id,x,y\n".getBytes(StandardCharsets.US_ASCII));
+        for (int u = 0; u < data.nodeCount(); u++) {
+            if (buffer.remaining() < 64) drain(channel, buffer);
+            putLine(buffer, u, data.x[u], data.y[u]);
+        }
+        buffer.put("# from,to,cost,bandwidth\n".getBytes(StandardCharsets.US_ASCII));
+        for (int e = 0; e < data.edgeCount(); e++) {
+            if (buffer.remaining() < 64) drain(channel, buffer);
+            putLine(buffer, data.from[e], data.to[e], data.cost[e], data.bandwidth[e]);
+        }
+        drain(channel, buffer);
+    }
+
+    // Appends the numbers as one comma-separated line of ASCII digits
+    private static void putLine(ByteBuffer buffer, int... values) {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) buffer.put((byte) ',');
+            long value = values[i];
+            if (value < 0) {
+                buffer.put((byte) '-');
+                value = -value;
+            }
+            long divisor = 1;
+            while (divisor * 10 <= value) divisor *= 10;
+            for (; divisor > 0; divisor /= 10) buffer.put((byte) ('0' + value / divisor % 10));
+        }
+        buffer.put((byte) '\n');
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * A growable int array, so parsed numbers are not boxed.
+     */
+    private static final class IntArray {
+        int[] values = new int[1024];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        int[] toArray() { return Arrays.copyOf(values, size); }
+    }
+}
+
+/**
+ * ForceLayout places the nodes of a snapshot with a spring-electrical force model: every edge pulls its ends together
+ * with force d^2 / k, as in Fruchterman-Reingold, and every pair of nodes repels with force k^3 / d^2. Repulsion that
+ * falls off with the square of the distance keeps large graphs from blowing up, because far away nodes hardly push;
+ * with k^2 / d the whole graph pushes on its outer nodes and edges end up many times longer than k.
+ * Each step moves every node along its total force, by at most the current temperature, and the temperature cools
+ * down step by step so the layout settles.
+ * Repulsion uses a Barnes-Hut quadtree, so a step takes O(n log n) instead of O(n^2): a group of nodes whose cell is
+ * small compared to its distance (size / distance < THETA) acts as one node at its centre of mass. The tree lives in
+ * flat arrays that are reused between steps, and forces are computed for all nodes in parallel.
+ */
+class ForceLayout {
+    static final double K = 25;                  // Length scale k of the forces, in pixels
+    private static final double THETA = 0.9;
+    private static final double COOLING = 0.97;  // Temperature factor per step
+    private static final int MAX_DEPTH = 32;     // Nodes closer than a cell this deep share a leaf
+    private static final int EMPTY = -1, INTERNAL = -2, SHARED = -3;
+
+    private final GraphSnapshot graph;
+    private final double[] x, y;
+    private final double[] dx, dy;  // Displacement of every node in the current step
+    private double temperature;
+    private final double startTemperature, minTemperature;
+
+    // Quadtree cells: centre and half size, mass and mass-weighted position sums, first of four children, and the
+    // single node of a leaf (or EMPTY, INTERNAL or SHARED)
+    private double[] cellX, cellY, half, mass, sumX, sumY;
+    private int[] firstChild, body;
+    private int cellCount;
+
+    /**
+     * Starts from the given positions (which are updated in place). Nodes at the same position are spread a little.
+     */
+    ForceLayout(GraphSnapshot graph, double[] x, double[] y) {
+        this.graph = graph;
+        this.x = x;
+        this.y = y;
+        int n = graph.nodeCount;
+        dx = new double[n];
+        dy = new double[n];
+        Random random = new Random(n);
+        for (int i = 0; i < n; i++) {
+            x[i] += random.nextDouble() - 0.5;
+            y[i] += random.nextDouble() - 0.5;
+        }
+        temperature = startTemperature = K * Math.max(1, Math.sqrt(n)) / 2;
+        minTemperature = K / 20;
+        allocateCells(Math.max(16, 4 * n));
+    }
+
+    public boolean isDone() { return temperature < minTemperature; }
+
+    /**
+     * Returns how far the layout is from done, as a fraction in [0, 1].
+     */
+    public double progress() {
+        if (isDone()) return 1;
+        return Math.log(startTemperature / temperature) / Math.log(startTemperature / minTemperature);
+    }
+
+    /**
+     * Performs one step: repulsion through the quadtree, attraction along the edges, then moves and cools down.
+     */
+    public void step() {
+        int n = graph.nodeCount;
+        if (n == 0) {
+            temperature = 0;
+            return;
+        }
+        buildTree();
+        double k3 = K * K * K;
+        IntStream.range(0, n).parallel().forEach(i -> repel(i, k3));
+        for (int e = 0; e < graph.from.length; e++) {
+            int u = graph.from[e], v = graph.to[e];
+            if (u == v) continue;
+            double ex = x[u] - x[v], ey = y[u] - y[v];
+            double factor = Math.sqrt(ex * ex + ey * ey) / K;  // (d^2 / k) / d
+            dx[u] -= ex * factor;
+            dy[u] -= ey * factor;
+            dx[v] += ex * factor;
+            dy[v] += ey * factor;
+        }
+        for (int i = 0; i < n; i++) {
+            double length = Math.sqrt(dx[i] * dx[i] + dy[i] * dy[i]);
+            if (length > 0) {
+                double limited = Math.min(length, temperature) / length;
+                x[i] += dx[i] * limited;
+                y[i] += dy[i] * limited;
+            }
+        }
+        temperature *= COOLING;
+    }
+
+    // Sets the displacement of node i to the repulsion from all other nodes, approximated through the quadtree
+    private void repel(int i, double k3) {
+        double fx = 0, fy = 0;
+        int[] stack = new int[4 * MAX_DEPTH + 4];
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int c = stack[--top];
+            if (body[c] == i || mass[c] == 0) continue;
+            double ox = x[i] - sumX[c] / mass[c], oy = y[i] - sumY[c] / mass[c];
+            double d2 = Math.max(ox * ox + oy * oy, 0.01);
+            boolean far = 4 * half[c] * half[c] < THETA * THETA * d2;
+            if (firstChild[c] < 0 || far) {
+                double force = k3 * mass[c] / (d2 * Math.sqrt(d2));  // (k^3 / d^2) / d, times the number of nodes in the cell
+                fx += ox * force;
+                fy += oy * force;
+            } else {
+                for (int q = 0; q < 4; q++) stack[top++] = firstChild[c] + q;
+            }
+        }
+        dx[i] = fx;
+        dy[i] = fy;
+    }
+
+    // Builds the quadtree over the current positions, inserting nodes one by one
+    private void buildTree() {
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for (int i = 0; i < graph.nodeCount; i++) {
+            minX = Math.min(minX, x[i]);
+            maxX = Math.max(maxX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxY = Math.max(maxY, y[i]);
+        }
+        cellCount = 0;
+        newCell((minX + maxX) / 2, (minY + maxY) / 2, Math.max(maxX - minX, maxY - minY) / 2 + 1);
+        for (int i = 0; i < graph.nodeCount; i++) insert(i);
+    }
+
+    private void insert(int i) {
+        int c = 0;
+        for (int depth = 0; ; depth++) {
+            if (firstChild[c] < 0) {
+                if (body[c] == EMPTY || depth >= MAX_DEPTH) {
+                    body[c] = (body[c] == EMPTY) ? i : SHARED;
+                    addMass(c, i);
+                    return;
+                }
+                int old = body[c];  // Split the leaf and move its node one level down
+                body[c] = INTERNAL;
+                firstChild[c] = cellCount;
+                double h = half[c] / 2;
+                newCell(cellX[c] - h, cellY[c] - h, h);
+                newCell(cellX[c] + h, cellY[c] - h, h);
+                newCell(cellX[c] - h, cellY[c] + h, h);
+                newCell(cellX[c] + h, cellY[c] + h, h);
+                int child = childFor(c, old);
+                body[child] = old;
+                addMass(child, old);
+            }
+            addMass(c, i);
+            c = childFor(c, i);
+        }
+    }
+
+    private int childFor(int c, int i) {
+        return firstChild[c] + (x[i] >= cellX[c] ? 1 : 0) + (y[i] >= cellY[c] ? 2 : 0);
+    }
+
+    private void addMass(int c, int i) {
+        mass[c]++;
+        sumX[c] += x[i];
+        sumY[c] += y[i];
+    }
+
+    private void newCell(double centerX, double centerY, double halfSize) {
+        if (cellCount == body.length) allocateCells(body.length * 2);
+        int c = cellCount++;
+        cellX[c] = centerX;
+        cellY[c] = centerY;
+        half[c] = halfSize;
+        mass[c] = sumX[c] = sumY[c] = 0;
+        firstChild[c] = -1;
+        body[c] = EMPTY;
+    }
+
+    private void allocateCells(int capacity) {
+        if (body == null) {
+            cellX = new double[capacity];
+            cellY = new double[capacity];
+            half = new double[capacity];
+            mass = new double[capacity];
+            sumX = new double[capacity];
+            sumY = new double[capacity];
+            firstChild = new int[capacity];
+            body = new int[capacity];
+            return;
+        }
+        cellX = Arrays.copyOf(cellX, capacity);
+        cellY = Arrays.copyOf(cellY, capacity);
+        half = Arrays.copyOf(half, capacity);
+        mass = Arrays.copyOf(mass, capacity);
+        sumX = Arrays.copyOf(sumX, capacity);
+        sumY = Arrays.copyOf(sumY, capacity);
+        firstChild = Arrays.copyOf(firstChild, capacity);
+        body = Arrays.copyOf(body, capacity);
+    }
+}
+
+/**
+ * ShortestPathBenchmark compares Dijkstra with the IndexedMinHeap against Dijkstra with a java.util.PriorityQueue
+ * using lazy deletion (stale entries are skipped when polled), on random graphs stored as primitive adjacency arrays.
+ * Each variant gets warm-up rounds so the JIT has compiled it before the measured rounds.
+ * It then checks the all-pairs BottleneckIndex against a widest path search for random pairs and times both.
+ * Run it with `java Question_5 --bench`.
+ */
+class ShortestPathBenchmark {
+    public static void run() {
+        searchHeaps();
+        bottleneckQueries();
+    }
+
+    private static void searchHeaps() {
+        for (int n : new int[]{10_000, 100_000}) {
+            int m = n * 5;
+            Random random = new Random(n);
+            int[] offsets = new int[n + 1];
+            int[] from = new int[m], to = new int[m], weight = new int[m];
+            for (int e = 0; e < m; e++) {
+                from[e] = random.nextInt(n);
+                to[e] = random.nextInt(n);
+                weight[e] = 1 + random.nextInt(1000);
+                offsets[from[e] + 1]++;
+                offsets[to[e] + 1]++;
+            }
+            for (int u = 0; u < n; u++) offsets[u + 1] += offsets[u];
+            int[] targets = new int[2 * m], weights = new int[2 * m], next = Arrays.copyOf(offsets, n);
+            for (int e = 0; e < m; e++) {
+                targets[next[from[e]]] = to[e];
+                weights[next[from[e]]++] = weight[e];
+                targets[next[to[e]]] = from[e];
+                weights[next[to[e]]++] = weight[e];
+            }
+
+            long checksum = 0;
+            for (int round = 0; round < 5; round++) {  // Warm-up
+                checksum += indexedHeap(n, offsets, targets, weights, round) + lazyPriorityQueue(n, offsets, targets, weights, round);
+            }
+            long indexedNanos = 0, lazyNanos = 0;
+            for (int round = 0; round < 20; round++) {
+                long start = System.nanoTime();
+                long a = indexedHeap(n, offsets, targets, weights, round);
+                indexedNanos += System.nanoTime() - start;
+                start = System.nanoTime();
+                long b = lazyPriorityQueue(n, offsets, targets, weights, round);
+                lazyNanos += System.nanoTime() - start;
+                if (a != b) throw new IllegalStateException("Both variants must find the same distances");
+                checksum += a;
+            }
+            System.out.printf("V=%d E=%d: indexed heap %.2f ms, PriorityQueue %.2f ms per search (checksum %d)%n",
+                    n, m, indexedNanos / 20 / 1e6, lazyNanos / 20 / 1e6, checksum);
+        }
+    }
+
+    // Returns the sum of the distances from the source, so both variants can be checked against each other
+    private static long indexedHeap(int n, int[] offsets, int[] targets, int[] weights, int source) {
+        long[] dist = new long[n];
+        Arrays.fill(dist, Long.MAX_VALUE);
+        IndexedMinHeap heap = new IndexedMinHeap(n);
+        dist[source] = 0;
+        heap.insert(source, 0);
+        while (!heap.isEmpty()) {
+            int u = heap.poll();
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int v = targets[e];
+                long alt = dist[u] + weights[e];
+                if (alt < dist[v]) {
+                    dist[v] = alt;
+                    if (heap.contains(v)) heap.decreaseKey(v, alt); else heap.insert(v, alt);
+                }
+            }
+        }
+        return sumReachable(dist);
+    }
+
+    private static long lazyPriorityQueue(int n, int[] offsets, int[] targets, int[] weights, int source) {
+        long[] dist = new long[n];
+        Arrays.fill(dist, Long.MAX_VALUE);
+        PriorityQueue<long[]> queue = new PriorityQueue<>(Comparator.comparingLong(entry -> entry[0]));
+        dist[source] = 0;
+        queue.add(new long[]{0, source});
+        while (!queue.isEmpty()) {
+            long[] entry = queue.poll();
+            int u = (int) entry[1];
+            if (entry[0] > dist[u]) continue;  // Stale entry, the node was reached more cheaply since
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int v = targets[e];
+                long alt = dist[u] + weights[e];
+                if (alt < dist[v]) {
+                    dist[v] = alt;
+                    queue.add(new long[]{alt, v});
+                }
+            }
+        }
+        return sumReachable(dist);
+    }
+
+    // Every query of the index must match the width of the widest path search for the same pair
+    private static void bottleneckQueries() {
+        int n = 100_000, m = n * 3, pairs = 1000;
+        Random random = new Random(7);
+        int[] from = new int[m], to = new int[m], cost = new int[m], bandwidth = new int[m], offsets = new int[n + 1];
+        for (int e = 0; e < m; e++) {
+            from[e] = random.nextInt(n);
+            to[e] = random.nextInt(n);
+            cost[e] = 1 + random.nextInt(100);
+            bandwidth[e] = random.nextInt(1000);  // Zero bandwidth links cannot carry traffic
+            offsets[from[e] + 1]++;
+            offsets[to[e] + 1]++;
+        }
+        for (int u = 0; u < n; u++) offsets[u + 1] += offsets[u];
+        int[] incident = new int[2 * m], next = Arrays.copyOf(offsets, n);
+        for (int e = 0; e < m; e++) {
+            incident[next[from[e]]++] = e;
+            incident[next[to[e]]++] = e;
+        }
+        GraphSnapshot graph = new GraphSnapshot(0, n, from, to, cost, bandwidth, offsets, incident);
+
+        long start = System.nanoTime();
+        BottleneckIndex index = new BottleneckIndex(graph);
+        long buildNanos = System.nanoTime() - start, queryNanos = 0, searchNanos = 0;
+        for (int i = 0; i < pairs; i++) {
+            int u = random.nextInt(n), v = random.nextInt(n);
+            start = System.nanoTime();
+            long indexed = index.query(u, v);
+            queryNanos += System.nanoTime() - start;
+            start = System.nanoTime();
+            long searched = graph.widestPathTree(u, v, GraphSnapshot.NO_PROGRESS).valueAt(v);
+            searchNanos += System.nanoTime() - start;
+            if (u != v && indexed != searched) {
+                throw new IllegalStateException("Bottleneck of " + u + "-" + v + ": index " + indexed + ", search " + searched);
+            }
+        }
+        System.out.printf("Bottleneck index V=%d E=%d: built in %.1f ms, %.2f us per query, widest path search %.2f ms per pair%n",
+                n, m, buildNanos / 1e6, queryNanos / 1e3 / pairs, searchNanos / 1e6 / pairs);
+    }
+
+    private static long sumReachable(long[] dist) {
+        long sum = 0;
+        for (long d : dist) if (d != Long.MAX_VALUE) sum += d;
+        return sum;
+    }
+}
@@ -13,11 +13,43 @@
  * 
  * A `State` enum is used to track the current state of the program (whether it's time to print a 0, odd, or even number).
  * Each thread waits for the appropriate condition to be signaled and prints the respective number when allowed.
+ *
+ * A second, lock-free mode (`Mode.SEQUENCER`) replaces the lock and conditions with a single volatile turn counter:
+ * each thread waits for its turn with a `Backoff` policy (spin, then yield, then park) and hands over by advancing the
+ * counter and unparking the next thread only if it is parked. Together with `BatchedNumberPrinter`, which writes ASCII
+ * digits into one reusable ByteBuffer and drains it into a FileChannel (or any other channel) in large batches, this removes the per-number lock, signal and
+ * System.out call. `java Question_6_a --bench [n]` compares the numbers printed per second of both modes.
+ *
+ * The turn-taking of the sequencer mode lives in `TurnSequencer`, which works for any number of roles: a function maps
+ * each turn number to the role that owns it and each role has its own callback. The zero/odd/even pattern is just one
+ * configuration (three roles, turn t owned by ZERO when t is even, otherwise by ODD or EVEN); `main` also runs a
+ * four-stage round robin with it. The sequencer records how long every handoff took.
+ *
+ * Both modes take a ThreadFactory, so the threads can be virtual threads (`ThreadKind.VIRTUAL`, Java 21 and later) as
+ * well as platform threads; `java Question_6_a --bench-threads [count]` compares their handoff latency and memory.
  */
 
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongConsumer;
+import java.util.function.LongToIntFunction;
 
 class NumberPrinter {
     /**
@@ -42,11 +74,373 @@ class NumberPrinter {
     public void printOdd(int num) {
         System.out.print(num);
     }
+
+    /**
+     * Writes out anything the printer still holds. Called once all numbers have been printed.
+     */
+    public void flush() {
+        System.out.flush();
+    }
+}
+
+/**
+ * A NumberPrinter that writes ASCII digits straight into one reusable direct ByteBuffer, without creating a String or
+ * any other object per number, and drains the buffer into a channel only when it is full or flushed.
+ * The sink is any WritableByteChannel: by default a FileChannel on standard output (which writes a direct buffer
+ * without copying it), or for example `Channels.newChannel(new ByteArrayOutputStream())` to capture the output.
+ * It is not thread-safe by itself: the threads of a ThreadController use it strictly one after another, and every
+ * handoff between them (lock release or turn counter update) makes the previous writes visible to the next thread.
+ */
+class BatchedNumberPrinter extends NumberPrinter {
+    private static final int MAX_DIGITS = 11;  // "-2147483648"
+    private final WritableByteChannel sink;
+    private final ByteBuffer buffer;
+
+    /**
+     * Creates a printer that writes to standard output through a 64 KB buffer.
+     */
+    public BatchedNumberPrinter() {
+        this(new FileOutputStream(FileDescriptor.out).getChannel(), 1 << 16);
+    }
+
+    /**
+     * @param out the stream the batches are written to
+     * @param capacity the size of the buffer in bytes
+     */
+    public BatchedNumberPrinter(OutputStream out, int capacity) {
+        this(Channels.newChannel(out), capacity);
+    }
+
+    /**
+     * @param sink the channel the batches are written to; it is not closed by the printer
+     * @param capacity the size of the buffer in bytes
+     */
+    public BatchedNumberPrinter(WritableByteChannel sink, int capacity) {
+        this.sink = sink;
+        this.buffer = ByteBuffer.allocateDirect(Math.max(capacity, MAX_DIGITS));
+    }
+
+    @Override
+    public void printZero() {
+        if (!buffer.hasRemaining()) flush();
+        buffer.put((byte) '0');
+    }
+
+    @Override
+    public void printEven(int num) {
+        put(num);
+    }
+
+    @Override
+    public void printOdd(int num) {
+        put(num);
+    }
+
+    /**
+     * Writes the buffered bytes to the sink and empties the buffer.
+     */
+    @Override
+    public void flush() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) sink.write(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    // Appends the decimal digits of num, filling them in from the last one
+    private void put(int num) {
+        if (buffer.remaining() < MAX_DIGITS) flush();
+        long value = num;
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) digits++;
+        int position = buffer.position();
+        for (int i = position + digits - 1; i >= position; i--) {
+            buffer.put(i, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        buffer.position(position + digits);
+    }
+}
+
+/**
+ * A policy for waiting on a condition that another thread will soon make true: spin a few times (cheap when the other
+ * thread runs on another core), then yield the processor a few times, then park until unparked.
+ * On a single processor spinning only delays the thread that has to make progress, so `forThisMachine` skips it there.
+ */
+class Backoff {
+    final int spins, yields;
+
+    /**
+     * @param spins the number of busy-wait checks before yielding
+     * @param yields the number of Thread.yield calls before parking
+     */
+    Backoff(int spins, int yields) {
+        this.spins = spins;
+        this.yields = yields;
+    }
+
+    static Backoff forThisMachine() {
+        return new Backoff(Runtime.getRuntime().availableProcessors() > 1 ? 1000 : 0, 10);
+    }
+
+    /**
+     * A spinning virtual thread holds on to its carrier thread and keeps the thread it waits for from running, so
+     * virtual threads only yield (which frees the carrier) before they park.
+     */
+    static Backoff forThreads(ThreadKind kind) {
+        return kind == ThreadKind.VIRTUAL ? new Backoff(0, 10) : forThisMachine();
+    }
+}
+
+/**
+ * ThreadKind selects the threads ThreadController and TurnSequencer run on, through a ThreadFactory.
+ * Virtual threads exist since Java 21. `Thread.ofVirtual()` is looked up by reflection so this file still builds and
+ * runs on older JDKs, where VIRTUAL falls back to platform threads (check `ThreadKind.virtualAvailable()`).
+ * Everything the threads wait on is pinning-safe: ReentrantLock, Condition and LockSupport.park release the carrier
+ * of a waiting virtual thread, where a `synchronized` block or Object.wait would pin it.
+ */
+enum ThreadKind {
+    PLATFORM, VIRTUAL;
+
+    private static final ThreadFactory VIRTUAL_FACTORY = lookUpVirtualFactory();
+
+    static boolean virtualAvailable() { return VIRTUAL_FACTORY != null; }
+
+    ThreadFactory factory() {
+        return (this == VIRTUAL && VIRTUAL_FACTORY != null) ? VIRTUAL_FACTORY : Thread::new;
+    }
+
+    private static ThreadFactory lookUpVirtualFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;  // Before Java 21, or a preview JDK without --enable-preview
+        }
+    }
+}
+
+/**
+ * TurnSequencer runs K roles on K threads that take strictly ordered turns 0, 1, 2, ... up to a number of turns.
+ * A role-selection function says which role owns each turn, and the owner's callback runs for it; callbacks of
+ * different turns never overlap, and everything a callback did is visible to the callback of the next turn.
+ * One volatile turn counter (through a VarHandle) is the only shared state. Each thread waits for a turn it owns with
+ * a Backoff policy and hands over by advancing the counter and unparking exactly the thread of the next turn's role,
+ * and only if that thread announced that it is parking.
+ * Every handoff is timed, from the moment the counter is advanced to the moment the next role sees it, into a
+ * histogram per receiving role, so the cost of the turn-taking itself can be observed.
+ */
+class TurnSequencer {
+    private static final VarHandle TURN;
+    private static final VarHandle PARKED = MethodHandles.arrayElementVarHandle(int[].class);
+
+    static {
+        try {
+            TURN = MethodHandles.lookup().findVarHandle(TurnSequencer.class, "turn", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final long turns;
+    private final LongToIntFunction roleOf;
+    private final LongConsumer[] callbacks;
+    private final Backoff backoff;
+    private final ThreadFactory threadFactory;
+    private final Thread[] threads;
+    private final int[] parked;                 // parked[role] is 1 while that role's thread may be parked
+    private final LatencyHistogram[] latencies; // Handoffs received by each role, written only by its own thread
+    private volatile long turn;                 // Next turn to run; Long.MAX_VALUE once the sequence was stopped
+    private volatile long handedOverAt;         // System.nanoTime() when the counter was last advanced
+    private volatile Throwable failure;
+
+    /**
+     * @param roles the number of roles, each run by its own thread
+     * @param turns the number of turns to run
+     * @param roleOf returns the role (0 to roles - 1) that owns a turn
+     * @param callbacks the action of each role, called with the number of the turn
+     * @param backoff how a thread waits for its next turn
+     */
+    TurnSequencer(int roles, long turns, LongToIntFunction roleOf, LongConsumer[] callbacks, Backoff backoff) {
+        this(roles, turns, roleOf, callbacks, backoff, ThreadKind.PLATFORM.factory());
+    }
+
+    /**
+     * Same as above, with the role threads created by the given factory (for example `ThreadKind.VIRTUAL.factory()`).
+     */
+    TurnSequencer(int roles, long turns, LongToIntFunction roleOf, LongConsumer[] callbacks, Backoff backoff,
+                  ThreadFactory threadFactory) {
+        if (callbacks.length != roles) throw new IllegalArgumentException("Expected " + roles + " callbacks, got " + callbacks.length);
+        this.turns = turns;
+        this.roleOf = roleOf;
+        this.callbacks = callbacks.clone();
+        this.backoff = backoff;
+        this.threadFactory = threadFactory;
+        threads = new Thread[roles];
+        parked = new int[roles];
+        latencies = new LatencyHistogram[roles];
+        for (int role = 0; role < roles; role++) latencies[role] = new LatencyHistogram();
+    }
+
+    /**
+     * Runs all turns and returns when they are done. If a callback throws, the other roles are stopped and the
+     * exception is rethrown here (wrapped if it is checked). If the calling thread is interrupted, the roles are stopped
+     * and the interrupt flag is kept.
+     */
+    public void run() {
+        for (int role = 0; role < threads.length; role++) {
+            int self = role;
+            threads[role] = threadFactory.newThread(() -> roleTask(self));
+            threads[role].setName("turn-role-" + role);
+        }
+        handedOverAt = System.nanoTime();
+        for (Thread thread : threads) thread.start();
+        try {
+            for (Thread thread : threads) thread.join();
+        } catch (InterruptedException e) {
+            stop();
+            Thread.currentThread().interrupt();
+        }
+        Throwable error = failure;
+        if (error instanceof RuntimeException) throw (RuntimeException) error;
+        if (error instanceof Error) throw (Error) error;
+        if (error != null) throw new IllegalStateException(error);
+    }
+
+    /**
+     * Returns the latency of the handoffs to one role.
+     */
+    public LatencyHistogram handoffLatency(int role) { return latencies[role]; }
+
+    /**
+     * Returns the latency of all handoffs, merged over the roles.
+     */
+    public LatencyHistogram handoffLatency() {
+        LatencyHistogram all = new LatencyHistogram();
+        for (LatencyHistogram histogram : latencies) all.add(histogram);
+        return all;
+    }
+
+    private void roleTask(int role) {
+        try {
+            while (true) {
+                long t = awaitTurn(role);
+                if (t >= turns) return;
+                latencies[role].record(System.nanoTime() - handedOverAt);
+                callbacks[role].accept(t);
+                handedOverAt = System.nanoTime();
+                TURN.setVolatile(this, t + 1);
+                if (t + 1 < turns) wake(roleOf.applyAsInt(t + 1));
+                else stop();  // Let the roles still waiting see the end
+            }
+        } catch (Throwable e) {
+            failure = e;
+            stop();
+        }
+    }
+
+    // Waits with the backoff policy until the counter reaches a turn this role owns (or the end) and returns it
+    private long awaitTurn(int role) {
+        for (int attempt = 0; ; attempt++) {
+            long t = (long) TURN.getAcquire(this);
+            if (t >= turns || roleOf.applyAsInt(t) == role) return t;
+            if (Thread.currentThread().isInterrupted()) {
+                stop();
+                return turns;
+            }
+            if (attempt < backoff.spins) {
+                Thread.onSpinWait();
+            } else if (attempt < backoff.spins + backoff.yields) {
+                Thread.yield();
+            } else {
+                // Announce the park before checking the counter again, so the previous role either sees the flag
+                // after advancing the counter and unparks this thread, or this check already sees the new value
+                PARKED.setVolatile(parked, role, 1);
+                long now = (long) TURN.getVolatile(this);
+                if (now < turns && roleOf.applyAsInt(now) != role) LockSupport.park(this);
+                PARKED.setVolatile(parked, role, 0);
+            }
+        }
+    }
+
+    private void wake(int role) {
+        if ((int) PARKED.getVolatile(parked, role) == 1) LockSupport.unpark(threads[role]);
+    }
+
+    // Ends the sequence early (or marks its end) and wakes every role so it can return
+    private void stop() {
+        TURN.setVolatile(this, Long.MAX_VALUE);
+        for (Thread thread : threads) LockSupport.unpark(thread);
+    }
+}
+
+/**
+ * A histogram of latencies in nanoseconds with one bucket per power of two, so recording is a few instructions and
+ * never allocates. Percentiles are reported as the upper bound of their bucket, within a factor of two.
+ */
+class LatencyHistogram {
+    private final long[] buckets = new long[64];  // buckets[b] counts latencies in [2^(b-1), 2^b), bucket 0 counts 0
+    private long count, total, max;
+
+    public void record(long nanos) {
+        nanos = Math.max(0, nanos);
+        buckets[64 - Long.numberOfLeadingZeros(nanos)]++;
+        count++;
+        total += nanos;
+        max = Math.max(max, nanos);
+    }
+
+    public void add(LatencyHistogram other) {
+        for (int b = 0; b < buckets.length; b++) buckets[b] += other.buckets[b];
+        count += other.count;
+        total += other.total;
+        max = Math.max(max, other.max);
+    }
+
+    public long count() { return count; }
+
+    public double mean() { return count == 0 ? 0 : (double) total / count; }
+
+    public long max() { return max; }
+
+    /**
+     * Returns an upper bound for the latency that the given fraction (0 to 1) of the handoffs did not exceed.
+     */
+    public long percentile(double fraction) {
+        long rank = (long) Math.ceil(fraction * count), seen = 0;
+        for (int b = 0; b < buckets.length; b++) {
+            seen += buckets[b];
+            if (seen >= rank && seen > 0) return Math.min(max, b == 0 ? 0 : (1L << b) - 1);
+        }
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d handoffs, mean %.0f ns, p50 <= %d ns, p99 <= %d ns, max %d ns",
+                count, mean(), percentile(0.5), percentile(0.99), max);
+    }
 }
 
 class ThreadController {
+    /**
+     * How the three threads take turns: with the lock and conditions, or with the lock-free turn counter.
+     */
+    enum Mode { LOCK, SEQUENCER }
+
     private final int n;
     private final NumberPrinter printer;
+    private final Mode mode;
+    private final Backoff backoff;
+    private final ThreadFactory threadFactory;
     private final Lock lock = new ReentrantLock();
     private final Condition zeroCondition = lock.newCondition();
     private final Condition oddCondition = lock.newCondition();
@@ -59,23 +453,57 @@ class ThreadController {
     private State currentState = State.ZERO;
     private int currentNumber = 1;
 
+    private TurnSequencer sequencer;  // The last sequencer mode run, for its handoff latencies
+
     /**
-     * Initializes the thread controller with the given number `n` and printer.
+     * Initializes the thread controller with the given number `n` and printer, in lock mode.
      * @param n the maximum number to print (e.g., for printing 0 to `n`)
      * @param printer the NumberPrinter to print the numbers
      */
     public ThreadController(int n, NumberPrinter printer) {
+        this(n, printer, Mode.LOCK, Backoff.forThisMachine());
+    }
+
+    /**
+     * Initializes the thread controller with the given number `n`, printer and turn-taking mode.
+     * @param n the maximum number to print (e.g., for printing 0 to `n`)
+     * @param printer the NumberPrinter to print the numbers
+     * @param mode how the threads take turns
+     * @param backoff how a thread waits for its turn in sequencer mode
+     */
+    public ThreadController(int n, NumberPrinter printer, Mode mode, Backoff backoff) {
+        this(n, printer, mode, backoff, ThreadKind.PLATFORM.factory());
+    }
+
+    /**
+     * Initializes the thread controller with the given number `n`, printer and turn-taking mode, running the three
+     * threads from the given factory.
+     * @param n the maximum number to print (e.g., for printing 0 to `n`)
+     * @param printer the NumberPrinter to print the numbers
+     * @param mode how the threads take turns
+     * @param backoff how a thread waits for its turn in sequencer mode
+     * @param threadFactory creates the zero, odd and even threads, e.g. `ThreadKind.VIRTUAL.factory()`
+     */
+    public ThreadController(int n, NumberPrinter printer, Mode mode, Backoff backoff, ThreadFactory threadFactory) {
         this.n = n;
         this.printer = printer;
+        this.mode = mode;
+        this.backoff = backoff;
+        this.threadFactory = threadFactory;
     }
 
     /**
      * Starts the three threads (zero, odd, even) that will print the numbers in the required pattern.
      */
     public void start() {
-        Thread zeroThread = new Thread(this::zeroTask);
-        Thread oddThread = new Thread(this::oddTask);
-        Thread evenThread = new Thread(this::evenTask);
+        if (mode == Mode.SEQUENCER) {
+            runSequencer();
+            printer.flush();
+            return;
+        }
+        Thread zeroThread = threadFactory.newThread(this::zeroTask);
+        Thread oddThread = threadFactory.newThread(this::oddTask);
+        Thread evenThread = threadFactory.newThread(this::evenTask);
 
         zeroThread.start();
         oddThread.start();
@@ -88,6 +516,32 @@ class ThreadController {
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         }
+        printer.flush();
+    }
+
+    /**
+     * Sequencer mode: the pattern as a TurnSequencer with the three states as roles. Turn 2i prints the zero before
+     * i + 1 and turn 2i + 1 prints i + 1, so the owner of a turn follows from its number alone.
+     */
+    private void runSequencer() {
+        LongConsumer[] callbacks = new LongConsumer[State.values().length];
+        callbacks[State.ZERO.ordinal()] = t -> printer.printZero();
+        callbacks[State.ODD.ordinal()] = t -> printer.printOdd((int) ((t + 1) / 2));
+        callbacks[State.EVEN.ordinal()] = t -> printer.printEven((int) ((t + 1) / 2));
+        sequencer = new TurnSequencer(callbacks.length, 2L * n, ThreadController::stateOfTurn, callbacks, backoff, threadFactory);
+        sequencer.run();
+    }
+
+    private static int stateOfTurn(long t) {
+        if (t % 2 == 0) return State.ZERO.ordinal();
+        return ((t + 1) / 2 % 2 == 1) ? State.ODD.ordinal() : State.EVEN.ordinal();
+    }
+
+    /**
+     * Returns the handoff latencies of the last sequencer mode run, or null if there was none.
+     */
+    public LatencyHistogram handoffLatency() {
+        return sequencer == null ? null : sequencer.handoffLatency();
     }
 
     /**
@@ -117,6 +571,9 @@ class ThreadController {
         }
         lock.lock();
         try {
+            while (currentState != State.ZERO) {  // Let the last odd or even number be printed before stopping
+                zeroCondition.awaitUninterruptibly();
+            }
             currentNumber = n + 1;
             oddCondition.signalAll();
             evenCondition.signalAll();
@@ -189,10 +646,137 @@ public class Question_6_a {
      * Main method to run the program. It initializes the `NumberPrinter` and `ThreadController` objects and starts the process.
      */
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--bench")) {
+            benchmark(args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--bench-threads")) {
+            benchmarkThreadKinds(args.length > 1 ? Integer.parseInt(args[1]) : 5_000);
+            return;
+        }
         int n = 5;  // Set the value of n for the sequence
         NumberPrinter printer = new NumberPrinter();
         ThreadController controller = new ThreadController(n, printer);
         controller.start();
+        System.out.println();
+
+        // The sequencer mode with the batched printer must print exactly the same sequence
+        ThreadController sequencer = new ThreadController(n, new BatchedNumberPrinter(), ThreadController.Mode.SEQUENCER, Backoff.forThisMachine());
+        sequencer.start();
+        System.out.println();
+
+        // Any number of roles can take turns: four stages in round robin, three rounds
+        String[] stages = {"read", "parse", "check", "write"};
+        LongConsumer[] callbacks = new LongConsumer[stages.length];
+        for (int i = 0; i < stages.length; i++) {
+            String stage = stages[i];
+            callbacks[i] = t -> System.out.print(stage + (t + 1 < 12 ? " -> " : "\n"));
+        }
+        new TurnSequencer(stages.length, 12, t -> (int) (t % stages.length), callbacks, Backoff.forThisMachine()).run();
+    }
+
+    /**
+     * Prints how many numbers per second each mode hands over for 0 to `n`, writing to a stream that discards the bytes
+     * so only the turn-taking and formatting are measured. Each mode runs a few times first so the JIT has compiled it.
+     * For the sequencer mode the handoff latencies are printed as well. The first line is the baseline: lock mode with
+     * the plain NumberPrinter, with System.out redirected to an autoflushing stream that discards the bytes.
+     */
+    static void benchmark(int n) {
+        PrintStream stdout = System.out;
+        long start = 0;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream(), true));
+        try {
+            for (int round = 0; round < 4; round++) {  // Three warm-up rounds, the last one is measured
+                if (round == 3) start = System.nanoTime();
+                new ThreadController(round == 3 ? n : Math.min(n, 100_000), new NumberPrinter()).start();
+            }
+        } finally {
+            System.setOut(stdout);
+        }
+        double baseline = (System.nanoTime() - start) / 1e9;
+        System.out.printf("LOCK mode, NumberPrinter on System.out: n=%d in %.2f s, %.0f numbers/sec%n", n, baseline, 2.0 * n / baseline);
+        for (ThreadController.Mode mode : ThreadController.Mode.values()) {
+            for (int round = 0; round < 3; round++) {  // Warm-up
+                new ThreadController(Math.min(n, 100_000), new BatchedNumberPrinter(OutputStream.nullOutputStream(), 1 << 16), mode, Backoff.forThisMachine()).start();
+            }
+            start = System.nanoTime();
+            ThreadController controller = new ThreadController(n, new BatchedNumberPrinter(OutputStream.nullOutputStream(), 1 << 16), mode, Backoff.forThisMachine());
+            controller.start();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%s mode: n=%d in %.2f s, %.0f numbers/sec%n", mode, n, seconds, 2.0 * n / seconds);
+            if (controller.handoffLatency() != null) System.out.println("  " + controller.handoffLatency());
+        }
+    }
+
+    /**
+     * Compares platform and virtual threads: the handoff latency of the sequencer mode on each kind, and the memory
+     * and start-up time of `count` threads that are all parked at the same time (heap growth after a GC, and growth of
+     * the resident set size, which includes the native stacks of platform threads, where Linux reports it).
+     */
+    static void benchmarkThreadKinds(int count) {
+        if (!ThreadKind.virtualAvailable()) {
+            System.out.println("Virtual threads need Java 21 (running " + Runtime.version() + "), VIRTUAL runs on platform threads");
+        }
+        for (ThreadKind kind : ThreadKind.values()) {
+            ThreadController controller = null;
+            for (int round = 0; round < 4; round++) {  // Three warm-up rounds, the last one is measured
+                controller = new ThreadController(100_000, new BatchedNumberPrinter(OutputStream.nullOutputStream(), 1 << 16),
+                        ThreadController.Mode.SEQUENCER, Backoff.forThreads(kind), kind.factory());
+                controller.start();
+            }
+            System.out.println(kind + " threads, handoff latency: " + controller.handoffLatency());
+
+            long heapBefore = usedHeap(), rssBefore = residentSetSize();
+            long start = System.nanoTime();
+            Thread[] threads = new Thread[count];
+            CountDownLatch started = new CountDownLatch(count);
+            CountDownLatch release = new CountDownLatch(1);
+            for (int i = 0; i < count; i++) {
+                threads[i] = kind.factory().newThread(() -> {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+                threads[i].start();
+            }
+            double startMillis;
+            long heap, rss;
+            try {
+                started.await();
+                startMillis = (System.nanoTime() - start) / 1e6;
+                heap = usedHeap() - heapBefore;
+                rss = residentSetSize() - rssBefore;
+                release.countDown();
+                for (Thread thread : threads) thread.join();
+            } catch (InterruptedException e) {
+                release.countDown();
+                Thread.currentThread().interrupt();
+                return;
+            }
+            System.out.printf("  %d parked threads: started in %.1f ms, heap +%d KB (%d bytes/thread), RSS %s%n",
+                    count, startMillis, heap / 1024, heap / count, rssBefore < 0 ? "not available" : "+" + rss / 1024 + " KB (" + rss / count + " bytes/thread)");
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // VmRSS from /proc/self/status in bytes, or -1 where there is no such file
+    private static long residentSetSize() {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+                if (line.startsWith("VmRSS:")) return 1024 * Long.parseLong(line.replaceAll("[^0-9]", ""));
+            }
+        } catch (IOException | RuntimeException e) {
+            // Not Linux
+        }
+        return -1;
     }
 }
 
@@ -202,4 +786,10 @@ public class Question_6_a {
  * 
  * The algorithm works as expected, ensuring that `0` is printed first, followed by an odd number, then an even number, and this pattern continues until the specified number `n` is reached. 
  * The threads correctly synchronize and print numbers without any issues, as evidenced by the output sequence.
+ *
+ * The sequencer mode prints the same sequence without a lock: one volatile turn counter decides whose turn it is, a
+ * waiting thread only parks after spinning and yielding, and it is only unparked when it actually parked. With the
+ * batched printer the output is written in 64 KB blocks instead of one System.out call per number.
+ * That turn-taking is the generic `TurnSequencer`: each role has one thread, and each handoff wakes exactly the thread
+ * of the next turn's role, never the others, so adding roles does not add wake-ups.
  */
@@ -4,32 +4,479 @@
  * links from it. The crawler then follows those links to discover more pages. 
  * The crawling process continues until all reachable pages are crawled.
  *
- * The crawler uses an ExecutorService with a fixed thread pool to manage the worker threads, and a ConcurrentLinkedQueue to 
+ * The crawler uses an ExecutorService with a fixed thread pool to manage the worker threads, and a `HostFrontier` to 
  * store the URLs to be crawled. A ConcurrentHashMap is used to store the crawled data and keep track of visited URLs to avoid 
  * revisiting the same page.
  *
+ * The frontier keeps one queue per host and hands out a URL only when its host is eligible: each host has a token-bucket
+ * rate limit and a maximum number of requests at once, and the hosts wait in a priority queue ordered by the time they
+ * may next be asked. A timer wakes the crawler when the next host becomes eligible. One busy site therefore cannot take
+ * over the workers, and the crawl gets faster with more hosts without any host seeing more than its limits.
+ *
  * The `CrawlTask` class is responsible for fetching the URL content and extracting links from it.
- * Each thread processes one URL at a time and submits additional tasks to crawl new links discovered on the page.
+ * A task starts the download of one URL without waiting for it, and submits tasks for the new links once the page has
+ * been parsed, so the threads do not limit how many pages are downloaded at once (see below).
  * The program will gracefully shut down the thread pool once all tasks are completed.
+ *
+ * Pages are downloaded asynchronously by `PageFetcher` (built on `HttpClient.sendAsync`, with HTTP/2, pooled
+ * connections, timeouts and a body-size cap). A task only starts the download; parsing the page runs as a new step on
+ * the pool once the body has arrived. No thread waits for the network, so the number of requests in flight is set by
+ * the fetcher (`maxInFlight`, a thousand by default) and not by the number of threads.
+ *
+ * The crawler can also run every task on its own virtual thread (`Executors.newVirtualThreadPerTaskExecutor`, Java 21
+ * and later). The executor is looked up by reflection, so on older JDKs the crawler falls back to the fixed pool.
+ * Nothing a task waits on pins its carrier thread: the concurrent collections are not built on `synchronized`.
+ *
+ * `java Question_6_b --local` crawls small sites served by local `com.sun.net.httpserver` stand-ins (one host per
+ * port) instead of the internet, including a page above the body cap and a page slower than the read timeout, and
+ * prints how many requests each host received at most at once and per second.
  */
 
+ import com.sun.net.httpserver.HttpServer;
  import java.util.*;
  import java.util.concurrent.*;
  import java.util.regex.*;
  import java.net.*;
+ import java.net.http.HttpClient;
+ import java.net.http.HttpHeaders;
+ import java.net.http.HttpRequest;
+ import java.net.http.HttpResponse;
+ import java.nio.ByteBuffer;
+ import java.nio.charset.Charset;
+ import java.nio.charset.StandardCharsets;
  import java.io.IOException;
+ import java.time.Duration;
  import java.util.concurrent.atomic.AtomicInteger;
+ import java.util.concurrent.atomic.AtomicLong;
+ import java.util.concurrent.locks.Lock;
+ import java.util.concurrent.locks.ReentrantLock;
+ 
+ /**
+  * PageFetcher downloads pages asynchronously with one shared `java.net.http.HttpClient`, so a request in flight holds
+  * no thread: `fetch` returns at once, and the page arrives through a CompletableFuture.
+  * - The client prefers HTTP/2, which multiplexes all requests to one host over a single connection, and keeps
+  *   HTTP/1.1 connections alive in its pool for the next request to the same host.
+  * - A connect timeout bounds opening a connection, and a read timeout bounds the whole exchange, from sending the
+  *   request to the last byte of the body. A request that runs out of time is cancelled.
+  * - The body is streamed chunk by chunk into a buffer of at most `maxBodyBytes`. Once the cap is reached the rest of the
+  *   body is cancelled, so a huge page never has to be held in memory.
+  * - At most `maxInFlight` requests run at the same time. Further requests wait in a queue without blocking the caller.
+  * - Redirects are not followed: a 3xx response is returned with its `Location`, so the caller can send the next request
+  *   through its own limits (the crawler queues it in the frontier like any other link).
+  */
+ class PageFetcher {
+     private final HttpClient client;
+     private final Duration readTimeout;
+     private final int maxBodyBytes;
+     private final int maxInFlight;
+     private final AtomicInteger inFlight = new AtomicInteger();
+     private final ConcurrentLinkedQueue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+ 
+     /**
+      * Creates a fetcher with a 5 s connect timeout, a 10 s read timeout, a 2 MB body cap and 1000 requests in flight.
+      */
+     public PageFetcher() {
+         this(Duration.ofSeconds(5), Duration.ofSeconds(10), 2 << 20, 1000);
+     }
+ 
+     /**
+      * @param connectTimeout the longest time to open a connection
+      * @param readTimeout the longest time from sending a request to receiving the last byte of its body
+      * @param maxBodyBytes the number of bytes of a body that are kept; the rest is not downloaded
+      * @param maxInFlight the maximum number of requests running at the same time
+      */
+     public PageFetcher(Duration connectTimeout, Duration readTimeout, int maxBodyBytes, int maxInFlight) {
+         this.client = HttpClient.newBuilder()
+                 .version(HttpClient.Version.HTTP_2)
+                 .connectTimeout(connectTimeout)
+                 .followRedirects(HttpClient.Redirect.NEVER)
+                 .build();
+         this.readTimeout = readTimeout;
+         this.maxBodyBytes = maxBodyBytes;
+         this.maxInFlight = maxInFlight;
+     }
+ 
+     /**
+      * A downloaded page: the URI it was served from and its body cut to the cap, or for a redirect the raw `Location`
+      * it points to and no body.
+      */
+     static final class Page {
+         final URI uri;
+         final String body;
+         final String location;
+ 
+         Page(URI uri, String body, String location) {
+             this.uri = uri;
+             this.body = body;
+             this.location = location;
+         }
+     }
+ 
+     /**
+      * Starts downloading the given URL.
+      * @param url the absolute http or https URL to fetch
+      * @return a future for the page (a redirect if it has a location), which fails with an IOException for a status
+      *         other than 2xx or a 3xx with a Location header, with an
+      *         HttpTimeoutException or TimeoutException when the request runs out of time, or with an
+      *         IllegalArgumentException for a malformed URL
+      */
+     public CompletableFuture<Page> fetch(String url) {
+         CompletableFuture<Page> page = new CompletableFuture<>();
+         waiting.add(() -> send(url, page));
+         startWaiting();
+         return page;
+     }
+ 
+     // Starts waiting requests while fewer than maxInFlight are running
+     private void startWaiting() {
+         while (!waiting.isEmpty()) {
+             int running = inFlight.get();
+             if (running >= maxInFlight) return;  // A request that finishes starts the next one
+             if (!inFlight.compareAndSet(running, running + 1)) continue;
+             Runnable request = waiting.poll();
+             if (request == null) {
+                 inFlight.decrementAndGet();
+             } else {
+                 request.run();
+             }
+         }
+     }
+ 
+     private void send(String url, CompletableFuture<Page> page) {
+         CompletableFuture<HttpResponse<String>> exchange;
+         try {
+             HttpRequest request = HttpRequest.newBuilder(URI.create(url)).timeout(readTimeout).GET().build();
+             exchange = client.sendAsync(request, this::bodyFor);
+         } catch (RuntimeException e) {
+             finished(page, null, e);
+             return;
+         }
+         // The copy fails on the deadline and then cancels the exchange, which aborts the download
+         exchange.copy().orTimeout(readTimeout.toMillis(), TimeUnit.MILLISECONDS).whenComplete((response, error) -> {
+             if (error != null) exchange.cancel(true);
+             finished(page, response, error);
+         });
+     }
+ 
+     private void finished(CompletableFuture<Page> page, HttpResponse<String> response, Throwable error) {
+         inFlight.decrementAndGet();
+         startWaiting();
+         if (error != null) {
+             page.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+         } else if (response.statusCode() / 100 == 3 && response.headers().firstValue("Location").isPresent()) {
+             page.complete(new Page(response.uri(), null, response.headers().firstValue("Location").get()));
+         } else if (response.statusCode() / 100 != 2) {
+             page.completeExceptionally(new IOException("HTTP " + response.statusCode() + " for " + response.uri()));
+         } else {
+             page.complete(new Page(response.uri(), response.body(), null));
+         }
+     }
+ 
+     // Streams successful bodies into a capped buffer and skips the body of any other response
+     private HttpResponse.BodySubscriber<String> bodyFor(HttpResponse.ResponseInfo info) {
+         if (info.statusCode() / 100 != 2) return HttpResponse.BodySubscribers.replacing(null);
+         return new CappedBody(maxBodyBytes, charsetOf(info.headers()));
+     }
+ 
+     private static Charset charsetOf(HttpHeaders headers) {
+         String type = headers.firstValue("Content-Type").orElse("");
+         int at = type.toLowerCase(Locale.ROOT).indexOf("charset=");
+         if (at >= 0) {
+             String name = type.substring(at + 8).split(";")[0].replace("\"", "").trim();
+             try {
+                 return Charset.forName(name);
+             } catch (IllegalArgumentException e) {
+                 // Unknown charset, fall through to UTF-8
+             }
+         }
+         return StandardCharsets.UTF_8;
+     }
+ 
+     /**
+      * Collects the chunks of a body as they arrive, one at a time, until the body ends or the cap is reached; at the
+      * cap it cancels the rest of the body and completes with what it has.
+      */
+     private static final class CappedBody implements HttpResponse.BodySubscriber<String> {
+         private final int limit;
+         private final Charset charset;
+         private final CompletableFuture<String> body = new CompletableFuture<>();
+         private Flow.Subscription subscription;
+         private byte[] bytes = new byte[8192];
+         private int size;
+ 
+         CappedBody(int maxBytes, Charset charset) {
+             this.limit = maxBytes;
+             this.charset = charset;
+         }
+ 
+         @Override
+         public CompletionStage<String> getBody() { return body; }
+ 
+         @Override
+         public void onSubscribe(Flow.Subscription subscription) {
+             this.subscription = subscription;
+             subscription.request(1);
+         }
+ 
+         @Override
+         public void onNext(List<ByteBuffer> chunks) {
+             for (ByteBuffer chunk : chunks) {
+                 int take = Math.min(chunk.remaining(), limit - size);
+                 if (size + take > bytes.length) bytes = Arrays.copyOf(bytes, Math.min(limit, Math.max(size + take, 2 * bytes.length)));
+                 chunk.get(bytes, size, take);
+                 size += take;
+                 if (chunk.hasRemaining()) {  // Reached the cap
+                     subscription.cancel();
+                     onComplete();
+                     return;
+                 }
+             }
+             subscription.request(1);
+         }
+ 
+         @Override
+         public void onError(Throwable error) { body.completeExceptionally(error); }
+ 
+         @Override
+         public void onComplete() { body.complete(new String(bytes, 0, size, charset)); }
+     }
+ }
+ 
+ /**
+  * HostFrontier holds the URLs still to crawl and hands them out politely: one queue per host (the host name with its
+  * port), and each host is limited on its own, so one large site cannot take every worker while the others starve.
+  * - A token bucket per host allows `ratePerSecond` requests on average and short bursts of up to `burst` requests.
+  * - At most `maxPerHost` requests to the same host run at the same time.
+  * - Hosts that have URLs waiting are kept in a priority queue ordered by the time they may next send a request, so
+  *   `poll` finds the next eligible URL in O(log hosts). A host at its concurrency limit is not in the queue; it comes
+  *   back when one of its requests is released.
+  * - A host left with no URLs and no request running is forgotten once its bucket is full again, when a new entry
+  *   would start the same way. Those hosts wait in a second priority queue ordered by that time, and `add` and `poll`
+  *   drop the ones whose time has passed, so a long crawl over many hosts does not keep every host it has seen.
+  * The total rate is the sum of the per-host rates, so throughput grows with the number of hosts while each host is
+  * never asked for more than its limits. All state is guarded by one ReentrantLock (which, unlike `synchronized`, does
+  * not pin a virtual thread).
+  */
+ class HostFrontier {
+     private final double ratePerSecond;
+     private final double burst;
+     private final int maxPerHost;
+     private final Lock lock = new ReentrantLock();
+     private final Map<String, Host> hosts = new HashMap<>();
+     private final PriorityQueue<Host> ready = new PriorityQueue<>(Comparator.comparingLong(host -> host.eligibleAt));
+     private final PriorityQueue<Expiry> idle = new PriorityQueue<>(Comparator.comparingLong(expiry -> expiry.at));
+     private int size;
+ 
+     /**
+      * The URLs of one host, its token bucket and the number of its requests running.
+      */
+     private static final class Host {
+         final String name;
+         final ArrayDeque<String> urls = new ArrayDeque<>();
+         double tokens;
+         long refilledAt;  // System.nanoTime() when the tokens were last topped up
+         long eligibleAt;  // Earliest System.nanoTime() of its next request, while it is in the ready queue
+         long expiresAt;   // System.nanoTime() its bucket is full again, set each time it becomes idle
+         int active;
+         boolean queued;
+ 
+         Host(String name, double tokens, long now) {
+             this.name = name;
+             this.tokens = tokens;
+             this.refilledAt = now;
+         }
+     }
+ 
+     /**
+      * A host that became idle and the time it may be forgotten. A host used again in the meantime gets a new entry
+      * when it is next idle, and the old one is skipped.
+      */
+     private static final class Expiry {
+         final Host host;
+         final long at;
+ 
+         Expiry(Host host, long at) {
+             this.host = host;
+             this.at = at;
+         }
+     }
+ 
+     /**
+      * Creates a frontier that allows 1 request per second to each host, in bursts of up to 2, with 2 at a time.
+      */
+     public HostFrontier() {
+         this(1, 2, 2);
+     }
+ 
+     /**
+      * @param ratePerSecond the average number of requests per second to one host
+      * @param burst the number of requests to one host that may be sent at once after it was idle (at least 1)
+      * @param maxPerHost the maximum number of requests to one host running at the same time
+      */
+     public HostFrontier(double ratePerSecond, double burst, int maxPerHost) {
+         if (ratePerSecond <= 0 || burst < 1 || maxPerHost < 1) throw new IllegalArgumentException("Limits must be positive and the burst at least 1");
+         this.ratePerSecond = ratePerSecond;
+         this.burst = burst;
+         this.maxPerHost = maxPerHost;
+     }
+ 
+     /**
+      * Adds a URL to the queue of its host.
+      * @param url an absolute URL
+      */
+     public void add(String url) {
+         String name = hostOf(url);
+         lock.lock();
+         try {
+             long now = System.nanoTime();
+             expire(now);
+             Host host = hosts.computeIfAbsent(name, key -> new Host(key, burst, now));
+             host.urls.add(url);
+             size++;
+             schedule(host, now);
+         } finally {
+             lock.unlock();
+         }
+     }
+ 
+     /**
+      * Takes the next URL whose host may be sent a request now, using one of its tokens and one of its request slots.
+      * Every URL returned must be passed to `release` once its request is done.
+      * @return the URL, or null if no host is eligible yet (see `nanosUntilReady`)
+      */
+     public String poll() {
+         lock.lock();
+         try {
+             long now = System.nanoTime();
+             expire(now);
+             while (!ready.isEmpty() && ready.peek().eligibleAt <= now) {
+                 Host host = ready.poll();
+                 host.queued = false;
+                 refill(host, now);
+                 if (host.tokens < 1) {  // Rounding left it just short of a token
+                     schedule(host, now);
+                     continue;
+                 }
+                 host.tokens--;
+                 host.active++;
+                 size--;
+                 String url = host.urls.poll();
+                 schedule(host, now);
+                 return url;
+             }
+             return null;
+         } finally {
+             lock.unlock();
+         }
+     }
+ 
+     /**
+      * Frees the request slot a URL from `poll` was using.
+      * @param url the URL whose request is done
+      */
+     public void release(String url) {
+         String name = hostOf(url);
+         lock.lock();
+         try {
+             long now = System.nanoTime();
+             Host host = hosts.get(name);
+             host.active--;
+             refill(host, now);
+             if (host.urls.isEmpty() && host.active == 0) {
+                 host.expiresAt = now + (long) Math.ceil((burst - host.tokens) / ratePerSecond * 1e9);
+                 idle.add(new Expiry(host, host.expiresAt));
+             } else {
+                 schedule(host, now);
+             }
+         } finally {
+             lock.unlock();
+         }
+     }
+ 
+     /**
+      * Returns how long until `poll` can return a URL: 0 if it can now, Long.MAX_VALUE if no host can be polled until a
+      * URL is added or released.
+      */
+     public long nanosUntilReady() {
+         lock.lock();
+         try {
+             Host next = ready.peek();
+             return (next == null) ? Long.MAX_VALUE : Math.max(0, next.eligibleAt - System.nanoTime());
+         } finally {
+             lock.unlock();
+         }
+     }
+ 
+     /**
+      * Returns the number of URLs waiting in the frontier.
+      */
+     public int size() {
+         lock.lock();
+         try {
+             return size;
+         } finally {
+             lock.unlock();
+         }
+     }
+ 
+     // Forgets the hosts that have been idle until their bucket filled up; a new entry would start the same way
+     private void expire(long now) {
+         while (!idle.isEmpty() && idle.peek().at <= now) {
+             Expiry expiry = idle.poll();
+             Host host = expiry.host;
+             boolean stillIdle = host.expiresAt == expiry.at && host.urls.isEmpty() && host.active == 0;
+             if (stillIdle && hosts.get(host.name) == host) hosts.remove(host.name);
+         }
+     }
+ 
+     // Puts a host with waiting URLs and a free slot into the ready queue, at the time its bucket will hold a token
+     private void schedule(Host host, long now) {
+         if (host.queued || host.urls.isEmpty() || host.active >= maxPerHost) return;
+         refill(host, now);
+         long wait = (host.tokens >= 1) ? 0 : (long) Math.ceil((1 - host.tokens) / ratePerSecond * 1e9);
+         host.eligibleAt = now + wait;
+         host.queued = true;
+         ready.add(host);
+     }
+ 
+     private void refill(Host host, long now) {
+         host.tokens = Math.min(burst, host.tokens + (now - host.refilledAt) / 1e9 * ratePerSecond);
+         host.refilledAt = now;
+     }
+ 
+     // The host and port of a URL, lower case; URLs that cannot be parsed share one queue
+     private static String hostOf(String url) {
+         try {
+             URI uri = URI.create(url);
+             String host = (uri.getHost() == null) ? "" : uri.getHost().toLowerCase(Locale.ROOT);
+             return (uri.getPort() < 0) ? host : host + ":" + uri.getPort();
+         } catch (IllegalArgumentException e) {
+             return "";
+         }
+     }
+ }
  
  public class Question_6_b {
  
-     // Executor for managing threads and a queue for URLs to crawl
+     // Executor for managing threads and the per-host frontier of URLs to crawl
      private final ExecutorService executor;
-     private final ConcurrentLinkedQueue<String> urlQueue = new ConcurrentLinkedQueue<>();
+     private final HostFrontier frontier;
+ 
+     // Wakes the dispatcher when the next host becomes eligible, and the time it is set for (0 if none is pending)
+     private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+         Thread thread = new Thread(runnable, "frontier-timer");
+         thread.setDaemon(true);
+         return thread;
+     });
+     private final AtomicLong timerAt = new AtomicLong();
      
      // Set to track visited URLs to avoid revisiting the same URL
      private final Set<String> visitedUrls = ConcurrentHashMap.newKeySet();
      
-     // Atomic counter for the number of active tasks
+     // Downloads the pages without holding a thread while a request is in flight
+     private final PageFetcher fetcher;
+ 
+     // Atomic counter for the number of URLs queued or being crawled
      private final AtomicInteger taskCount = new AtomicInteger(0);
      
      // Map to store crawled URLs and their content
@@ -40,79 +487,184 @@
       * @param maxThreads the maximum number of worker threads to use in the executor pool
       */
      public Question_6_b(int maxThreads) {
-         executor = Executors.newFixedThreadPool(maxThreads);
+         this(maxThreads, false);
+     }
+ 
+     /**
+      * Constructor that initializes the crawler on platform or virtual threads.
+      * @param maxThreads the number of worker threads that start downloads and parse pages
+      * @param virtualThreads whether to run each task on its own virtual thread (platform threads if the JDK has none)
+      */
+     public Question_6_b(int maxThreads, boolean virtualThreads) {
+         this(maxThreads, virtualThreads, new PageFetcher());
+     }
+ 
+     /**
+      * Constructor that initializes the crawler with its own fetcher (timeouts, body cap, requests in flight).
+      * @param maxThreads the number of worker threads that start downloads and parse pages
+      * @param virtualThreads whether to run each task on its own virtual thread (platform threads if the JDK has none)
+      * @param fetcher the fetcher that downloads the pages
+      */
+     public Question_6_b(int maxThreads, boolean virtualThreads, PageFetcher fetcher) {
+         this(maxThreads, virtualThreads, fetcher, new HostFrontier());
+     }
+ 
+     /**
+      * Constructor that initializes the crawler with its own fetcher and politeness limits.
+      * @param maxThreads the number of worker threads that start downloads and parse pages
+      * @param virtualThreads whether to run each task on its own virtual thread (platform threads if the JDK has none)
+      * @param fetcher the fetcher that downloads the pages
+      * @param frontier the frontier that limits the requests to each host
+      */
+     public Question_6_b(int maxThreads, boolean virtualThreads, PageFetcher fetcher, HostFrontier frontier) {
+         ExecutorService virtual = virtualThreads ? newVirtualThreadPerTaskExecutor() : null;
+         executor = (virtual != null) ? virtual : Executors.newFixedThreadPool(maxThreads);
+         this.fetcher = fetcher;
+         this.frontier = frontier;
      }
  
      /**
-      * Starts the crawling process by adding the seed URLs to the queue and 
+      * Returns `Executors.newVirtualThreadPerTaskExecutor()`, or null before Java 21.
+      */
+     static ExecutorService newVirtualThreadPerTaskExecutor() {
+         try {
+             return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+         } catch (ReflectiveOperationException | RuntimeException e) {
+             return null;
+         }
+     }
+ 
+     /**
+      * Starts the crawling process by adding the seed URLs to the frontier and 
       * submitting the first set of tasks.
       * @param seedUrls the initial list of URLs to start crawling from
       */
      public void startCrawling(List<String> seedUrls) {
          seedUrls.forEach(url -> {
              if (visitedUrls.add(url)) {
-                 urlQueue.add(url);
-                 submitTask(); // Submit the first task to crawl the seed URL
+                 enqueue(url); // Queue the seed URL for its host
              }
          });
      }
  
      /**
-      * Submits a new crawling task to the executor. Each task will crawl one URL, 
-      * extract links, and submit further tasks if new links are found.
+      * Adds a new URL to the frontier and submits the tasks for every URL whose host may be sent a request now.
       */
-     private void submitTask() {
+     private void enqueue(String url) {
          taskCount.incrementAndGet(); // Increment the task count
-         executor.submit(new CrawlTask()); // Submit a new CrawlTask
+         frontier.add(url);
+         dispatch();
      }
  
      /**
-      * The CrawlTask is responsible for processing one URL: fetching its content, 
-      * extracting the links, and submitting tasks to crawl the discovered links.
+      * Submits a CrawlTask for each URL the frontier releases. If URLs are left whose hosts are not eligible yet, the
+      * timer calls this again when the first of them is, unless an earlier wake-up is already pending.
+      */
+     private void dispatch() {
+         while (true) {
+             for (String url; (url = frontier.poll()) != null; ) {
+                 executor.submit(new CrawlTask(url)); // Submit a new CrawlTask
+             }
+             long wait = frontier.nanosUntilReady();
+             if (wait == Long.MAX_VALUE) return; // Nothing queued, or every host with URLs is at its concurrency limit
+             if (wait == 0) continue;
+             long now = System.nanoTime(), at = now + wait;
+             long pending = timerAt.get();
+             if (pending != 0 && pending - now > 0 && pending - at <= 0) return; // Woken up in time already
+             if (timerAt.compareAndSet(pending, at)) {
+                 timer.schedule(() -> {
+                     timerAt.compareAndSet(at, 0);
+                     dispatch();
+                 }, wait, TimeUnit.NANOSECONDS);
+                 return;
+             }
+         }
+     }
+ 
+     /**
+      * Frees the host slot of a crawled URL, lets the frontier hand out what that made eligible, and shuts down the
+      * executor once no URL is left.
+      */
+     private void done(String url) {
+         frontier.release(url);
+         dispatch();
+         if (taskCount.decrementAndGet() == 0 && frontier.size() == 0) {
+             executor.shutdown();
+             timer.shutdownNow();
+         }
+     }
+ 
+     /**
+      * The CrawlTask is responsible for processing one URL: starting the download of its content,
+      * then extracting the links, and submitting tasks to crawl the discovered links.
+      * The task counts as active until its page has been handled, so the executor is not shut down while downloads run.
       */
      private class CrawlTask implements Runnable {
+         private final String url;
+ 
+         CrawlTask(String url) {
+             this.url = url;
+         }
          
          @Override
          public void run() {
              try {
-                 String url = urlQueue.poll(); // Get the next URL from the queue
-                 if (url == null) return; // No more URLs to crawl
-                 
-                 String content = fetchUrl(url); // Fetch the content of the URL
-                 crawledData.put(url, content); // Store the crawled data in the map
-                 
-                 // Parse and extract links from the fetched content
-                 List<String> links = parseLinks(content);
+                 // Handle the page on the pool once it has arrived; no thread waits for it in between
+                 fetcher.fetch(url).whenCompleteAsync((page, error) -> handlePage(url, page, error), executor);
+             } catch (RuntimeException e) {
+                 done(url);
+                 throw e;
+             }
+         }
+ 
+         /**
+          * Stores a downloaded page under the URL it was served from and submits tasks for the links on it that were
+          * not seen before. A redirect is not followed here: its target is queued like a link, so the request to it
+          * goes through the frontier and the target host's limits. The page under the target's URL then resolves its
+          * relative links against that URL (e.g. /dir redirects to /dir/, whose links are relative to /dir/).
+          * @param url the URL that was requested
+          * @param page the downloaded page, or null if the download failed
+          * @param error why the download failed, or null
+          */
+         private void handlePage(String url, PageFetcher.Page page, Throwable error) {
+             try {
+                 if (error != null) {
+                     System.err.println("Error fetching URL: " + url + ": " + error);
+                     return;
+                 }
+                 String pageUrl = page.uri.toString();
+                 if (page.location != null) {
+                     String target = resolve(pageUrl, page.location);
+                     if (target != null && visitedUrls.add(target)) enqueue(target);
+                     return;
+                 }
+                 crawledData.put(pageUrl, page.body); // Store the crawled data in the map
  
                  // For each link, if it has not been visited, add it to the queue and submit a new task
-                 for (String link : links) {
-                     if (visitedUrls.add(link)) {
-                         urlQueue.add(link);
-                         submitTask();
+                 for (String link : parseLinks(page.body)) {
+                     String absolute = resolve(pageUrl, link);
+                     if (absolute != null && visitedUrls.add(absolute)) {
+                         enqueue(absolute);
                      }
                  }
-             } catch (IOException e) {
-                 System.err.println("Error fetching URL: " + e.getMessage());
              } finally {
-                 // Check if all tasks are done and shut down the executor if necessary
-                 if (taskCount.decrementAndGet() == 0 && urlQueue.isEmpty()) {
-                     executor.shutdown();
-                 }
+                 done(url);
              }
          }
  
          /**
-          * Fetches the content of the given URL using an HTTP GET request.
-          * @param url the URL to fetch
-          * @return the content of the URL as a string
-          * @throws IOException if there is an error during the fetch operation
+          * Resolves a link against the URL of the page it was found on.
+          * @return the absolute http or https URL without its fragment, or null if the link is not one
           */
-         private String fetchUrl(String url) throws IOException {
-             HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
-             conn.setRequestMethod("GET");
-             try (Scanner scanner = new Scanner(conn.getInputStream())) {
-                 scanner.useDelimiter("\\A");
-                 return scanner.hasNext() ? scanner.next() : ""; // Return the content of the URL
+         private String resolve(String pageUrl, String link) {
+             try {
+                 URI uri = URI.create(pageUrl).resolve(link.trim());
+                 if (!"http".equalsIgnoreCase(uri.getScheme()) && !"https".equalsIgnoreCase(uri.getScheme())) return null;
+                 String absolute = uri.toString();  // Raw form, so escapes such as %2F and %3F are kept as they were
+                 int fragment = absolute.indexOf('#');
+                 return (fragment < 0) ? absolute : absolute.substring(0, fragment);
+             } catch (IllegalArgumentException e) {
+                 return null;
              }
          }
  
@@ -151,16 +703,142 @@
      /**
       * Main method to start the crawler with a set of seed URLs and a fixed number of threads.
       * The crawling process is initiated and the program waits for the completion of all tasks.
-      * @param args command-line arguments (not used)
+      * @param args command-line arguments: `--virtual` runs the tasks on virtual threads, `--local` crawls a local
+      *             stand-in server instead of the internet
       * @throws InterruptedException if the thread is interrupted while waiting
+      * @throws IOException if the local server cannot be started
       */
-     public static void main(String[] args) throws InterruptedException {
+     public static void main(String[] args) throws InterruptedException, IOException {
+         boolean virtual = Arrays.asList(args).contains("--virtual");
+         if (Arrays.asList(args).contains("--local")) {
+             crawlLocalSite(virtual);
+             return;
+         }
          List<String> seedUrls = Arrays.asList("http://example.com", "http://example.org");
-         Question_6_b crawler = new Question_6_b(4); // Initialize crawler with 4 threads
+         Question_6_b crawler = new Question_6_b(4, virtual); // 4 worker threads; concurrent downloads are capped by the fetcher
          crawler.startCrawling(seedUrls); // Start crawling from seed URLs
          crawler.awaitTermination(); // Wait for all tasks to complete
          System.out.println("Crawled URLs: " + crawler.getCrawledData().size()); // Print number of crawled URLs
      }
+ 
+     /**
+      * Crawls sites served by local HttpServers, each on its own port and so its own host for the frontier. Every site
+      * is a binary tree of pages linked by relative links, and its root links to the root of the next site. The first
+      * site also has a page far above the body cap, a page slower than the read timeout, a link to a missing page and
+      * a link to /dir, which redirects to /dir/ whose relative link must resolve to /dir/child.
+      * Each server counts its requests and the most it served at once, to show that the per-host limits held.
+      * @param virtual whether the crawler runs its tasks on virtual threads
+      * @throws InterruptedException if the thread is interrupted while waiting
+      * @throws IOException if a server cannot be started
+      */
+     static void crawlLocalSite(boolean virtual) throws InterruptedException, IOException {
+         int sites = 8, pages = 250;
+         double rate = 100;
+         int maxPerHost = 4;
+         ExecutorService serverThreads = Executors.newCachedThreadPool();
+         List<HttpServer> servers = new ArrayList<>();
+         AtomicInteger[] requests = new AtomicInteger[sites], running = new AtomicInteger[sites], mostRunning = new AtomicInteger[sites];
+         long[] firstRequest = new long[sites], lastRequest = new long[sites];
+         try {
+             for (int site = 0; site < sites; site++) {
+                 HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+                 server.setExecutor(serverThreads);
+                 servers.add(server);
+                 requests[site] = new AtomicInteger();
+                 running[site] = new AtomicInteger();
+                 mostRunning[site] = new AtomicInteger();
+             }
+             for (int site = 0; site < sites; site++) {
+                 int s = site;
+                 String next = (site + 1 < sites) ? "http://localhost:" + servers.get(site + 1).getAddress().getPort() + "/page/0" : null;
+                 servers.get(site).createContext("/", exchange -> {
+                     long now = System.nanoTime();
+                     synchronized (firstRequest) { // Server side only, not on a crawler thread
+                         if (requests[s].getAndIncrement() == 0) firstRequest[s] = now;
+                         lastRequest[s] = Math.max(lastRequest[s], now);
+                     }
+                     mostRunning[s].accumulateAndGet(running[s].incrementAndGet(), Math::max);
+                     try {
+                         serve(exchange, pages, (s == 0), next);
+                     } finally {
+                         running[s].decrementAndGet();
+                     }
+                 });
+                 servers.get(site).start();
+             }
+ 
+             String root = "http://localhost:" + servers.get(0).getAddress().getPort();
+             // One local HttpServer cannot take a burst of 1000 new connections, so fewer requests run at a time here
+             PageFetcher fetcher = new PageFetcher(Duration.ofSeconds(2), Duration.ofSeconds(1), 64 << 10, 64);
+             Question_6_b crawler = new Question_6_b(4, virtual, fetcher, new HostFrontier(rate, 5, maxPerHost));
+             long start = System.nanoTime();
+             crawler.startCrawling(List.of(root + "/page/0"));
+             crawler.awaitTermination();
+             System.out.printf("Crawled URLs: %d of %d in %d ms, /big kept %d bytes, /dir/child crawled: %b%n", crawler.getCrawledData().size(),
+                     sites * pages + 3, (System.nanoTime() - start) / 1_000_000, crawler.getCrawledData().getOrDefault(root + "/big", "").length(),
+                     crawler.getCrawledData().containsKey(root + "/dir/child"));
+             for (int site = 0; site < sites; site++) {
+                 double seconds = (lastRequest[site] - firstRequest[site]) / 1e9;
+                 System.out.printf("  host %d: %d requests, at most %d at once (limit %d), %.0f requests/s (limit %.0f plus a burst of 5)%n",
+                         site, requests[site].get(), mostRunning[site].get(), maxPerHost, seconds > 0 ? (requests[site].get() - 1) / seconds : 0.0, rate);
+             }
+         } finally {
+             servers.forEach(server -> server.stop(0));
+             serverThreads.shutdownNow();
+         }
+     }
+ 
+     /**
+      * Answers one request of a local test site.
+      * @param exchange the request
+      * @param pages the number of pages in the site
+      * @param extras whether the site has the /big, /slow, /missing and /dir pages
+      * @param next the URL the root page links to, or null
+      * @throws IOException if the response cannot be sent
+      */
+     private static void serve(com.sun.net.httpserver.HttpExchange exchange, int pages, boolean extras, String next) throws IOException {
+         String path = exchange.getRequestURI().getPath();
+         if (extras && path.equals("/big")) {
+             byte[] block = new byte[1 << 16];
+             Arrays.fill(block, (byte) 'x');
+             exchange.sendResponseHeaders(200, 0); // Chunked, 8 MB in total
+             try {
+                 for (int sent = 0; sent < 128; sent++) exchange.getResponseBody().write(block);
+             } catch (IOException e) {
+                 // The client stopped reading at its cap
+             }
+         } else if (extras && path.equals("/slow")) {
+             try {
+                 Thread.sleep(3000);
+                 exchange.sendResponseHeaders(200, -1);
+             } catch (InterruptedException | IOException e) {
+                 // Stopped, or the client gave up
+             }
+         } else if (extras && path.equals("/dir")) {
+             exchange.getResponseHeaders().set("Location", "/dir/");
+             exchange.sendResponseHeaders(301, -1);
+         } else if (extras && (path.equals("/dir/") || path.equals("/dir/child"))) {
+             byte[] body = "<html><body><a href=\"child\">child</a></body></html>".getBytes(StandardCharsets.UTF_8);
+             exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+             exchange.sendResponseHeaders(200, body.length);
+             exchange.getResponseBody().write(body);
+         } else if (path.startsWith("/page/")) {
+             int i = Integer.parseInt(path.substring("/page/".length()));
+             StringBuilder html = new StringBuilder("<html><body>page ").append(i);
+             for (int child = 2 * i + 1; child <= 2 * i + 2 && child < pages; child++) {
+                 html.append(" <a href=\"/page/").append(child).append("\">").append(child).append("</a>");
+             }
+             if (i == 0 && next != null) html.append(" <a href=\"").append(next).append("\">next site</a>");
+             if (i == 0 && extras) html.append(" <a href=\"/big\">big</a> <a href=\"/slow\">slow</a> <a href=\"/missing\">missing</a> <a href=\"/dir\">dir</a>");
+             byte[] body = html.append("</body></html>").toString().getBytes(StandardCharsets.UTF_8);
+             exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+             exchange.sendResponseHeaders(200, body.length);
+             exchange.getResponseBody().write(body);
+         } else {
+             exchange.sendResponseHeaders(404, -1);
+         }
+         exchange.close();
+     }
  }
  
  /**
@@ -172,5 +850,11 @@
   * 
   * The algorithm works as expected, and all tasks are synchronized to ensure no URL is crawled more than once.
   * The program efficiently crawls the provided seed URLs and follows links discovered on those pages.
+  *
+  * Downloads go through `PageFetcher`, which sends them with `HttpClient.sendAsync`: the worker threads only start
+  * requests and parse the pages that have arrived, so the pool size no longer limits how many pages are downloaded at
+  * once. Timeouts and the body-size cap keep a slow or huge page from holding up the crawl.
+  * The per-host frontier makes the crawl polite: every host gets its own rate and concurrency limit, and URLs of
+  * different hosts are interleaved by the time each host may next be asked.
   */
  
\ No newline at end of file